@@ -11,7 +11,7 @@
             var deffered = $q.defer();
             $http.post(uploadUrl, fileFormData, {
                 transformRequest: angular.identity,
-                headers: {'Content-Type': undefined}
+                headers: {'Content-Type': undefined, 'Accept': 'text/csv'}
 
             }).success(function (response) {
                 deffered.resolve(response);
@@ -0,0 +1,52 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import com.prosper1099.parser.BenchmarkParsers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing parsed transactions as CSV with the {@link CsvTransactionHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CsvBenchmark {
+
+    @Param({"20000"})
+    public int transactions;
+
+    private TransactionParser transactionParser;
+    private List<Transaction> parsedTransactions;
+
+
+    @Setup
+    public void setUp() {
+        transactionParser = BenchmarkParsers.transactionParser("2024Plus");
+        parsedTransactions = transactionParser.parse1099BTransactions(new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, transactions).lines());
+    }
+
+    @Benchmark
+    public void writeCsv() {
+        CsvTransactionHandler csvTransactionHandler = new CsvTransactionHandler(Writer.nullWriter());
+        csvTransactionHandler.start("2024", transactionParser);
+        parsedTransactions.forEach(csvTransactionHandler::transaction);
+    }
+}
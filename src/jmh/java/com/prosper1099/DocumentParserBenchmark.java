@@ -0,0 +1,83 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import com.prosper1099.parser.BenchmarkParsers;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text extraction with {@link DocumentParser#parseDocument} and tax year detection with
+ * {@link DocumentParser#parseTaxYear} on small, medium and large documents. A third of their pages are 1099-OID and
+ * instruction pages, which are extracted or skipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DocumentParserBenchmark {
+
+    @Param({"100", "2000", "20000"})
+    public int transactions;
+
+    /**
+     * Number of extraction threads, 1 for sequential extraction.
+     */
+    @Param({"1", "0"})
+    public int parallelism;
+
+    @Param({"true", "false"})
+    public boolean skipPages;
+
+    private DocumentParser documentParser;
+    private TransactionParser transactionParser;
+    private byte[] pdf;
+    private List<String> lines;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        documentParser = new DocumentParser(parallelism, 50, 2, skipPages);
+        transactionParser = BenchmarkParsers.transactionParser("2017To2023");
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, transactions)
+                .boilerplatePages(transactions / 24);
+        lines = generator.lines();
+        pdf = generator.toPdf();
+    }
+
+    @TearDown
+    public void tearDown() {
+        documentParser.shutdown();
+    }
+
+    @Benchmark
+    public void parseDocument(Blackhole blackhole) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf)) {
+            int probedPages = documentParser.probeDocument(document, blackhole::consume);
+            documentParser.parseDocument(document, () -> PDDocument.load(pdf), probedPages, transactionParser, blackhole::consume, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public String parseTaxYear() {
+        return documentParser.parseTaxYear(lines);
+    }
+}
@@ -0,0 +1,69 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and extracting a typical statement with an embedded TrueType font, with the fonts parsed for each document
+ * and shared through the {@link FontCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FontCacheBenchmark {
+
+    /**
+     * Maximum number of idle fonts, 0 to parse the fonts of each document anew.
+     */
+    @Param({"0", "256"})
+    public int maxFonts;
+
+    private DocumentParser documentParser;
+    private DocumentSource documentSource;
+    private Path pdf;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        documentParser = new DocumentParser(1, 50, 2, true);
+        pdf = Files.createTempFile("prosper-1099-", ".pdf");
+        Files.write(pdf, new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 300).embeddedFont(true).toPdf());
+        documentSource = new DocumentLoader(DataSize.ofMegabytes(16), "", new FontCache(maxFonts)).open(pdf);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        documentParser.shutdown();
+        Files.deleteIfExists(pdf);
+    }
+
+    @Benchmark
+    public void loadAndExtract(Blackhole blackhole) throws IOException {
+        try (PDDocument document = documentSource.load()) {
+            documentParser.parseDocument(document, blackhole::consume);
+        }
+    }
+}
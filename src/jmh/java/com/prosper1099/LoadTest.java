@@ -0,0 +1,374 @@
+package com.prosper1099;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the application jar and uploads synthetic documents to /convertPdfToCsv from a number of concurrent clients,
+ * one concurrency level after the other. For each level it reports the throughput, the latency percentiles, the
+ * error rate, and the garbage collection and heap use read from Actuator, and writes all of it to a JSON report that
+ * can be compared across releases. The conversion cache is disabled, so every upload is converted.
+ * <p>
+ * Usage: LoadTest &lt;application jar&gt; &lt;report&gt; &lt;notes[:weight],...&gt; &lt;concurrency,...&gt;
+ * &lt;seconds per level&gt; [&lt;JVM options&gt;]
+ * <p>
+ * Each document of the mix has the given number of notes and is uploaded in proportion to its weight, 1 by default.
+ * Latency percentiles are reported for the whole mix and for each document.
+ */
+public class LoadTest {
+
+    private static final String BOUNDARY = "prosper1099-load-test";
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String url;
+
+
+    private LoadTest(int port) {
+        this.url = "http://localhost:" + port;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        String applicationJar = args[0];
+        Path report = Paths.get(args[1]);
+        List<Document> documents = generateDocuments(args[2]);
+        int[] concurrencyLevels = Arrays.stream(args[3].split(",")).mapToInt(Integer::parseInt).toArray();
+        Duration levelDuration = Duration.ofSeconds(Long.parseLong(args[4]));
+        List<String> jvmOptions = args.length > 5 ? StartupBenchmark.tokenize(args[5]) : List.of();
+
+        int port = StartupBenchmark.findFreePort();
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", applicationJar, "--server.port=" + port, "--prosper1099.cache.enabled=false"));
+
+        Process process = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            LoadTest loadTest = new LoadTest(port);
+            loadTest.awaitStartup(process);
+
+            // Warm up at the highest concurrency, so the first level isn't measured while the JIT compiles.
+            int maxConcurrency = Arrays.stream(concurrencyLevels).max().orElse(1);
+            loadTest.runLevel(documents, maxConcurrency, levelDuration.dividedBy(2));
+
+            List<Map<String, Object>> levels = new ArrayList<>();
+            System.out.printf("%11s %8s %7s %10s %8s %8s %8s %8s %10s%n",
+                    "concurrency", "requests", "errors", "requests/s", "p50 ms", "p95 ms", "p99 ms", "GC ms", "heap MB");
+            for (int concurrency : concurrencyLevels) {
+                Map<String, Object> level = loadTest.measureLevel(documents, concurrency, levelDuration);
+                levels.add(level);
+                printLevel(level);
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("application", new File(applicationJar).getName());
+            result.put("jvmOptions", jvmOptions);
+            result.put("secondsPerLevel", levelDuration.toSeconds());
+            result.put("documents", documents.stream().map(Document::describe).toList());
+            result.put("levels", levels);
+
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            loadTest.objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), result);
+            System.out.println("Wrote " + report);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Generates the documents of the mix, e.g. "100:8,2000:2,20000" for eight uploads of 100 notes and two uploads
+     * of 2000 notes for each upload of 20000 notes.
+     */
+    private static List<Document> generateDocuments(String mix) throws IOException {
+
+        List<Document> documents = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] notesAndWeight = entry.split(":");
+            int notes = Integer.parseInt(notesAndWeight[0]);
+            int weight = notesAndWeight.length > 1 ? Integer.parseInt(notesAndWeight[1]) : 1;
+
+            SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2022, notes)
+                    .boilerplatePages(4)
+                    .embeddedFont(true)
+                    .seed(notes);
+            documents.add(new Document(notes, weight, generator.getPageCount(), multipartBody(generator.toPdf())));
+        }
+
+        return documents;
+    }
+
+    private static byte[] multipartBody(byte[] pdf) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + 256);
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"document.pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(pdf);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        return body.toByteArray();
+    }
+
+    private void awaitStartup(Process process) throws Exception {
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited with " + process.exitValue());
+            }
+            try {
+                if (get("/actuator/health").path("status").asText().equals("UP")) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(100);
+        }
+
+        throw new IllegalStateException("The application didn't start within 2 minutes.");
+    }
+
+    private Map<String, Object> measureLevel(List<Document> documents, int concurrency, Duration duration) throws Exception {
+
+        double gcPausesBefore = getMetric("jvm.gc.pause", "COUNT", null);
+        double gcSecondsBefore = getMetric("jvm.gc.pause", "TOTAL_TIME", null);
+        double allocatedBefore = getMetric("jvm.gc.memory.allocated", "COUNT", null);
+
+        HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+
+        long start = System.nanoTime();
+        List<Sample> samples;
+        try {
+            samples = runLevel(documents, concurrency, duration);
+        } finally {
+            heapSampler.interrupt();
+            heapSampler.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = samples.stream().filter(Sample::succeeded).mapToLong(Sample::nanos).sorted().toArray();
+        long errors = samples.stream().filter(sample -> !sample.succeeded()).count();
+        long pages = samples.stream().filter(Sample::succeeded).mapToLong(sample -> sample.document().pages()).sum();
+
+        // The percentiles of a mix are dominated by its largest documents, so they are reported per document too.
+        Map<String, Object> latencyByNotes = new LinkedHashMap<>();
+        for (Document document : documents) {
+            latencyByNotes.put(String.valueOf(document.notes()), latencyMillis(samples.stream()
+                    .filter(sample -> sample.succeeded() && sample.document() == document)
+                    .mapToLong(Sample::nanos).sorted().toArray()));
+        }
+
+        Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("pauses", Math.round(getMetric("jvm.gc.pause", "COUNT", null) - gcPausesBefore));
+        gc.put("pauseMillis", Math.round((getMetric("jvm.gc.pause", "TOTAL_TIME", null) - gcSecondsBefore) * 1000));
+        gc.put("allocatedBytes", Math.round(getMetric("jvm.gc.memory.allocated", "COUNT", null) - allocatedBefore));
+
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("maxUsedBytes", heapSampler.maxUsedBytes);
+        heap.put("committedBytes", Math.round(getMetric("jvm.memory.committed", "VALUE", "area:heap")));
+
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("concurrency", concurrency);
+        level.put("requests", samples.size());
+        level.put("errors", errors);
+        level.put("errorRate", samples.isEmpty() ? 0 : (double) errors / samples.size());
+        level.put("requestsPerSecond", latencies.length / seconds);
+        level.put("pagesPerSecond", pages / seconds);
+        level.put("latencyMillis", latencyMillis(latencies));
+        level.put("latencyMillisByNotes", latencyByNotes);
+        level.put("gc", gc);
+        level.put("heap", heap);
+
+        return level;
+    }
+
+    /**
+     * Uploads documents from the given number of clients until the duration has passed. Each client waits for the
+     * whole CSV before it uploads the next document.
+     */
+    private List<Sample> runLevel(List<Document> documents, int concurrency, Duration duration) throws Exception {
+
+        List<Document> schedule = new ArrayList<>();
+        for (Document document : documents) {
+            schedule.addAll(Collections.nCopies(document.weight(), document));
+        }
+        Collections.shuffle(schedule, new Random(concurrency));
+
+        AtomicInteger next = new AtomicInteger();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<List<Sample>>> clients = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> {
+                    List<Sample> samples = new ArrayList<>();
+                    while (System.nanoTime() < deadline) {
+                        samples.add(upload(schedule.get(Math.floorMod(next.getAndIncrement(), schedule.size()))));
+                    }
+                    return samples;
+                }));
+            }
+
+            List<Sample> samples = new ArrayList<>();
+            for (Future<List<Sample>> client : clients) {
+                samples.addAll(client.get());
+            }
+            return samples;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Sample upload(Document document) {
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/convertPdfToCsv"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .header("Accept", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(document.body()))
+                .build();
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return new Sample(document, System.nanoTime() - start, response.statusCode() == 200);
+        } catch (IOException e) {
+            return new Sample(document, System.nanoTime() - start, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sample(document, System.nanoTime() - start, false);
+        }
+    }
+
+    private JsonNode get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(url + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 200 ? objectMapper.readTree(response.body()) : objectMapper.createObjectNode();
+    }
+
+    /**
+     * Returns the statistic of the Actuator metric, or 0 if it hasn't been recorded yet.
+     */
+    private double getMetric(String name, String statistic, String tag) throws IOException, InterruptedException {
+
+        JsonNode metric = get("/actuator/metrics/" + name + (tag != null ? "?tag=" + tag : ""));
+        for (JsonNode measurement : metric.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+
+        return 0;
+    }
+
+    private static Map<String, Object> latencyMillis(long[] sortedNanos) {
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("requests", sortedNanos.length);
+        latency.put("p50", percentileMillis(sortedNanos, 50));
+        latency.put("p95", percentileMillis(sortedNanos, 95));
+        latency.put("p99", percentileMillis(sortedNanos, 99));
+        latency.put("max", percentileMillis(sortedNanos, 100));
+
+        return latency;
+    }
+
+    private static double percentileMillis(long[] sortedNanos, int percentile) {
+
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+        return sortedNanos[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printLevel(Map<String, Object> level) {
+
+        Map<String, Object> latency = (Map<String, Object>) level.get("latencyMillis");
+        Map<String, Object> gc = (Map<String, Object>) level.get("gc");
+        Map<String, Object> heap = (Map<String, Object>) level.get("heap");
+
+        System.out.printf(Locale.ROOT, "%11d %8d %7d %10.1f %8.0f %8.0f %8.0f %8d %10d%n",
+                level.get("concurrency"), level.get("requests"), level.get("errors"), level.get("requestsPerSecond"),
+                latency.get("p50"), latency.get("p95"), latency.get("p99"), gc.get("pauseMillis"),
+                (Long) heap.get("maxUsedBytes") / (1024 * 1024));
+    }
+
+
+    private record Document(int notes, int weight, int pages, byte[] body) {
+
+        Map<String, Object> describe() {
+
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("notes", notes);
+            description.put("weight", weight);
+            description.put("pages", pages);
+            description.put("bytes", body.length);
+
+            return description;
+        }
+    }
+
+    private record Sample(Document document, long nanos, boolean succeeded) {
+    }
+
+    /**
+     * Polls the heap used by the application while a level runs, as Actuator only reports the current value.
+     */
+    private class HeapSampler extends Thread {
+
+        private volatile long maxUsedBytes;
+
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    maxUsedBytes = Math.max(maxUsedBytes, Math.round(getMetric("jvm.memory.used", "VALUE", "area:heap")));
+                    Thread.sleep(250);
+                }
+            } catch (IOException e) {
+                // The application stopped.
+            } catch (InterruptedException e) {
+                // The level has finished.
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.prosper1099;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching the application until its first successful conversion, for each set of JVM
+ * options, e.g. without and with the class data sharing archive written by the cdsArchive task. This is not a JMH
+ * benchmark, as each sample is a new JVM.
+ * <p>
+ * Usage: StartupBenchmark &lt;application jar&gt; &lt;PDF&gt; &lt;runs&gt; &lt;name&gt;=&lt;JVM options&gt;...
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        String applicationJar = args[0];
+        File document = new File(args[1]);
+        int runs = Integer.parseInt(args[2]);
+
+        System.out.printf("%-12s %10s %10s %10s%n", "JVM options", "min ms", "median ms", "max ms");
+
+        for (String configuration : Arrays.copyOfRange(args, 3, args.length)) {
+            String name = configuration.substring(0, configuration.indexOf('='));
+            List<String> jvmOptions = tokenize(configuration.substring(configuration.indexOf('=') + 1));
+
+            long[] millis = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                millis[run] = timeToFirstConversion(applicationJar, jvmOptions, document);
+            }
+            Arrays.sort(millis);
+
+            System.out.printf(Locale.ROOT, "%-12s %10d %10d %10d%n", name, millis[0], millis[runs / 2], millis[runs - 1]);
+        }
+    }
+
+    private static long timeToFirstConversion(String applicationJar, List<String> jvmOptions, File document) throws Exception {
+
+        int port = findFreePort();
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", applicationJar, "--server.port=" + port, "--prosper1099.cache.enabled=false"));
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new FileSystemResource(document));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        HttpEntity<MultiValueMap<String, Object>> request = new HttpEntity<>(body, headers);
+
+        RestTemplate restTemplate = new RestTemplate();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue());
+                }
+                try {
+                    byte[] csv = restTemplate.postForObject("http://localhost:" + port + "/convertPdfToCsv", request, byte[].class);
+                    if (csv != null && csv.length > 0) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ResourceAccessException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    static int findFreePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    static List<String> tokenize(String jvmOptions) {
+        return jvmOptions.isBlank() ? List.of() : Arrays.asList(jvmOptions.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.prosper1099.parser;
+
+import com.prosper1099.StreamingTransactionParser;
+import com.prosper1099.TransactionParsers;
+
+/**
+ * Creates the transaction parsers outside of the Spring context.
+ */
+public final class BenchmarkParsers {
+
+    private BenchmarkParsers() {
+    }
+
+    public static StreamingTransactionParser transactionParser(String layout) {
+        switch (layout) {
+            case "2017To2023":
+                return new TransactionParser2017To2023(new TransactionParsers());
+            case "2024Plus":
+                return new TransactionParser2024Plus(new TransactionParsers());
+            default:
+                throw new IllegalArgumentException("Unknown layout " + layout);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.prosper1099.parser;
+
+import com.prosper1099.StreamingTransactionParser;
+import com.prosper1099.Transaction;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each transaction parser on pre-extracted lines, one line at a time and in chunks matched in parallel. The score is
+ * in lines per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TransactionParserBenchmark {
+
+    private static final int LINES = 100000;
+
+    @Param({"2017To2023", "2024Plus"})
+    public String layout;
+
+    private StreamingTransactionParser transactionParser;
+    private List<String> lines;
+
+
+    @Setup
+    public void setUp() {
+        transactionParser = BenchmarkParsers.transactionParser(layout);
+        SyntheticDocumentGenerator generator = "2017To2023".equals(layout)
+                ? new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, LINES / 5)
+                : new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, LINES / 2).notesPerPage(40);
+
+        lines = new ArrayList<>(generator.lines());
+
+        // Pad with boilerplate so that every layout is measured on the same number of lines.
+        while (lines.size() < LINES) {
+            lines.add("This is important tax information and is being furnished to the IRS.");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public List<Transaction> parse1099BTransactions() {
+        return transactionParser.parse1099BTransactions(lines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public List<Transaction> parseLines() {
+
+        List<Transaction> transactions = new ArrayList<>();
+
+        StreamingTransactionParser.LineParser lineParser = transactionParser.newLineParser(transactions::add);
+        for (String line : lines) {
+            lineParser.parseLine(line);
+        }
+        lineParser.finish();
+
+        return transactions;
+    }
+}
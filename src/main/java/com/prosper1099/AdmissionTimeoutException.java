@@ -0,0 +1,17 @@
+package com.prosper1099;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a document waited too long for enough of the memory budget to be converted.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AdmissionTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    AdmissionTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,442 @@
+package com.prosper1099;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Converts a batch of PDFs, given directly or in ZIP archives, to a ZIP archive of CSVs. Each document is submitted
+ * for conversion as soon as it has been spooled, while the following documents are read, and each CSV is written to
+ * the archive as soon as its conversion finishes. Conversions write their CSV to a temporary file, so only the
+ * archive being written is streamed, not held in memory. Documents that can't be converted don't fail the batch,
+ * their errors are listed in the manifest at the end of the archive.
+ * <p>
+ * The number of documents and the decompressed size of the PDFs in ZIP archives are limited, so an archive can't
+ * fill the disk. As the archive of CSVs has been started by the time a limit is reached, the remaining documents are
+ * not converted and the limit is reported in the manifest.
+ */
+@Component
+public class BatchConverter {
+
+    static final String MANIFEST_NAME = "manifest.csv";
+    private static final String[] MANIFEST_HEADER = {"File", "CSV", "Error"};
+
+    private final DocumentLoader documentLoader;
+    private final CsvConverter csvConverter;
+    private final int parallelism;
+    private final int maxDocuments;
+    private final long maxEntryBytes;
+    private final long maxDecompressedBytes;
+    private final ExecutorService conversionPool;
+
+
+    @Autowired
+    BatchConverter(DocumentLoader documentLoader, CsvConverter csvConverter,
+                   @Value("${prosper1099.batch.parallelism:0}") int parallelism,
+                   @Value("${prosper1099.batch.max-documents:1000}") int maxDocuments,
+                   @Value("${prosper1099.batch.max-entry-size:500MB}") DataSize maxEntrySize,
+                   @Value("${prosper1099.batch.max-decompressed-size:2GB}") DataSize maxDecompressedSize) {
+        this.documentLoader = documentLoader;
+        this.csvConverter = csvConverter;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxDocuments = maxDocuments;
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.maxDecompressedBytes = maxDecompressedSize.toBytes();
+        this.conversionPool = Executors.newFixedThreadPool(this.parallelism, new CustomizableThreadFactory("batch-conversion-"));
+    }
+
+    void convert(List<MultipartFile> files, OutputStream outputStream) throws IOException {
+
+        Batch batch = new Batch(outputStream);
+
+        try {
+            for (MultipartFile file : files) {
+                boolean more = isZip(file)
+                        ? spoolZip(file, batch)
+                        : batch.add(file.getOriginalFilename(), () -> documentLoader.spool(file));
+                if (!more) {
+                    break;
+                }
+            }
+
+            batch.finish();
+        } finally {
+            batch.close();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        conversionPool.shutdownNow();
+    }
+
+    /**
+     * Adds the PDFs of the archive to the batch. Returns false if a limit has been reached.
+     */
+    private boolean spoolZip(MultipartFile file, Batch batch) throws IOException {
+
+        try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+            for (ZipEntry entry = nextEntry(zip, file, batch); entry != null; entry = nextEntry(zip, file, batch)) {
+                if (!entry.isDirectory() && isPdf(entry.getName()) && !entry.getName().startsWith("__MACOSX/")) {
+                    InputStream in = batch.limitDecompressedSize(zip);
+                    if (!batch.add(file.getOriginalFilename() + "/" + entry.getName(), () -> documentLoader.spool(in))) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the next entry of the archive, or null at its end or if it can't be read, which is reported in the
+     * manifest.
+     */
+    private static ZipEntry nextEntry(ZipInputStream zip, MultipartFile file, Batch batch) {
+        try {
+            return zip.getNextEntry();
+        } catch (IOException e) {
+            batch.addError(file.getOriginalFilename(), "Unable to read ZIP archive: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String getMessage(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    private Callable<BatchDocument> convert(BatchDocument document) {
+        return () -> {
+            Path csv = null;
+            try (DocumentLoader.SpooledDocument spooledDocument = document.document) {
+                csv = Files.createTempFile("prosper-1099-", ".csv");
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(csv))) {
+                    csvConverter.convert(spooledDocument, out);
+                }
+                if (!document.setCsv(csv)) {
+                    Files.deleteIfExists(csv);
+                }
+            } catch (Exception e) {
+                document.error = getMessage(e);
+                if (csv != null) {
+                    Files.deleteIfExists(csv);
+                }
+            }
+            return document;
+        };
+    }
+
+    private static BatchDocument take(CompletionService<BatchDocument> completionService) throws IOException {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while converting documents.");
+        } catch (ExecutionException e) {
+            // Conversions catch their own exceptions, so this is unexpected.
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void writeManifest(List<BatchDocument> documents, OutputStream out) throws IOException {
+
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.Builder.create().setHeader(MANIFEST_HEADER).build());
+        for (BatchDocument document : documents) {
+            printer.printRecord(document.name, document.csvName, document.error);
+        }
+
+        printer.flush();
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        return name != null && name.toLowerCase(Locale.ROOT).endsWith(".zip")
+                || "application/zip".equals(file.getContentType())
+                || "application/x-zip-compressed".equals(file.getContentType());
+    }
+
+    private static boolean isPdf(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    private static String getCsvName(String name) {
+
+        String csvName = name != null ? name.substring(name.lastIndexOf('/') + 1) : "";
+        if (isPdf(csvName)) {
+            csvName = csvName.substring(0, csvName.length() - ".pdf".length());
+        }
+
+        return (csvName.isEmpty() ? "document" : csvName) + ".csv";
+    }
+
+    private static String getUniqueName(String name, Set<String> names) {
+
+        String baseName = name.substring(0, name.length() - ".csv".length());
+        String uniqueName = name;
+        for (int i = 2; !names.add(uniqueName); i++) {
+            uniqueName = baseName + "-" + i + ".csv";
+        }
+
+        return uniqueName;
+    }
+
+
+    @FunctionalInterface
+    private interface Spooler {
+        DocumentLoader.SpooledDocument spool() throws IOException;
+    }
+
+    /**
+     * A document of the batch and the result of its conversion.
+     */
+    private static class BatchDocument {
+
+        private final String name;
+        private DocumentLoader.SpooledDocument document;
+        private Path csv;
+        private String error;
+        private String csvName;
+        private boolean discarded;
+
+
+        BatchDocument(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Sets the CSV the document was converted to. Returns false if the batch has been closed in the meantime, in
+         * which case the conversion must delete the CSV itself.
+         */
+        synchronized boolean setCsv(Path csv) {
+            if (discarded) {
+                return false;
+            }
+            this.csv = csv;
+            return true;
+        }
+
+        /**
+         * Returns the CSV the document was converted to, if any, and makes conversions still running discard theirs.
+         */
+        synchronized Path discard() {
+            discarded = true;
+            Path csv = this.csv;
+            this.csv = null;
+            return csv;
+        }
+    }
+
+    /**
+     * Thrown when the PDFs in the ZIP archives of a batch exceed the decompressed size limits.
+     */
+    private static class DecompressedSizeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+
+        DecompressedSizeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The state of the conversion of one batch: its documents, the conversions in flight and the archive of CSVs.
+     */
+    private class Batch {
+
+        private final ZipOutputStream zip;
+        private final Set<String> entryNames = new HashSet<>();
+        private final List<BatchDocument> documents = new ArrayList<>();
+        private final List<Future<BatchDocument>> conversions = new ArrayList<>();
+        private final CompletionService<BatchDocument> completionService = new ExecutorCompletionService<>(conversionPool);
+        private int running;
+        private long decompressedBytes;
+
+
+        Batch(OutputStream outputStream) {
+            this.zip = new ZipOutputStream(outputStream);
+            entryNames.add(MANIFEST_NAME);
+        }
+
+        /**
+         * Spools the document and submits its conversion. Returns false if the batch already contains the maximum
+         * number of documents or the decompressed size limit has been reached, in which case no more documents should
+         * be added.
+         */
+        boolean add(String name, Spooler spooler) throws IOException {
+
+            if (documents.size() >= maxDocuments) {
+                addError(name, "Not converted, the batch contains more than " + maxDocuments + " documents.");
+                return false;
+            }
+
+            BatchDocument document = new BatchDocument(name);
+            documents.add(document);
+            try {
+                document.document = spooler.spool();
+            } catch (DecompressedSizeException e) {
+                document.error = e.getMessage();
+                return false;
+            } catch (IOException e) {
+                document.error = getMessage(e);
+                return true;
+            }
+
+            // Keep a bounded number of conversions in flight so memory doesn't grow with the batch size.
+            if (running == parallelism) {
+                writeNext();
+            }
+
+            conversions.add(completionService.submit(convert(document)));
+            running++;
+
+            return true;
+        }
+
+        void addError(String name, String error) {
+            BatchDocument document = new BatchDocument(name);
+            document.error = error;
+            documents.add(document);
+        }
+
+        /**
+         * Wraps the ZIP input stream of the current entry, failing with a {@link DecompressedSizeException} once the
+         * entry or all entries of the batch so far exceed their limit. Closing the returned stream doesn't close the
+         * ZIP input stream.
+         */
+        InputStream limitDecompressedSize(InputStream in) {
+            return new FilterInputStream(in) {
+
+                private long entryBytes;
+
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        count(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        count(read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() {
+                }
+
+                private void count(int bytes) throws DecompressedSizeException {
+
+                    entryBytes += bytes;
+                    decompressedBytes += bytes;
+
+                    if (entryBytes > maxEntryBytes) {
+                        throw new DecompressedSizeException("Not converted, the PDF exceeds the maximum size of "
+                                + maxEntryBytes + " bytes. The rest of the ZIP archive and of the batch was skipped.");
+                    }
+                    if (decompressedBytes > maxDecompressedBytes) {
+                        throw new DecompressedSizeException("Not converted, the ZIP archives of the batch exceed the maximum "
+                                + "decompressed size of " + maxDecompressedBytes + " bytes. The rest of the batch was skipped.");
+                    }
+                }
+            };
+        }
+
+        /**
+         * Waits for the conversions in flight, then writes the manifest and finishes the archive.
+         */
+        void finish() throws IOException {
+
+            while (running > 0) {
+                writeNext();
+            }
+
+            zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+            writeManifest(documents, zip);
+            zip.closeEntry();
+
+            zip.finish();
+            zip.flush();
+        }
+
+        /**
+         * Waits for the next conversion to finish and copies its CSV to the archive.
+         */
+        private void writeNext() throws IOException {
+
+            BatchDocument document = take(completionService);
+            running--;
+
+            if (document.csv != null) {
+                try {
+                    document.csvName = getUniqueName(getCsvName(document.name), entryNames);
+                    zip.putNextEntry(new ZipEntry(document.csvName));
+                    Files.copy(document.csv, zip);
+                    zip.closeEntry();
+                } finally {
+                    Files.deleteIfExists(document.csv);
+                    document.csv = null;
+                }
+            }
+        }
+
+        /**
+         * Cancels the conversions in flight and deletes the temporary files of the batch. Conversions that are already
+         * running can't be stopped, so they delete their CSVs themselves once they see that the batch is closed.
+         */
+        void close() throws IOException {
+
+            conversions.forEach(conversion -> conversion.cancel(true));
+            for (BatchDocument document : documents) {
+                if (document.document != null) {
+                    document.document.close();
+                }
+                Path csv = document.discard();
+                if (csv != null) {
+                    Files.deleteIfExists(csv);
+                }
+            }
+        }
+    }
+}
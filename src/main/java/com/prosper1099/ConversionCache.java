@@ -0,0 +1,388 @@
+package com.prosper1099;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Caches conversion results by a key derived from the content of the uploaded PDF, so re-uploads of the same
+ * document skip parsing entirely. Results are kept in memory in least recently used order up to a total size,
+ * and optionally in a directory that survives restarts. Results older than the time to live are discarded by
+ * both tiers.
+ * <p>
+ * The directory keeps the results in a subdirectory named after {@link #RESULT_VERSION} and the application
+ * version, so results written before an upgrade are not served. Results are written to the tmp subdirectory first
+ * and then moved into place, so eviction never sees a result that is still being written.
+ */
+@Component
+public class ConversionCache implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionCache.class);
+
+    /**
+     * Version of the cached results. Bump it whenever the parsers or the output formats change.
+     */
+    static final int RESULT_VERSION = 1;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Duration timeToLive;
+    private final Path directory;
+    private final Path temporaryDirectory;
+    private final long maxDirectoryBytes;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long directoryBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    @Autowired
+    ConversionCache(@Value("${prosper1099.cache.enabled:true}") boolean enabled,
+                    @Value("${prosper1099.cache.max-size:64MB}") DataSize maxSize,
+                    @Value("${prosper1099.cache.max-entry-size:8MB}") DataSize maxEntrySize,
+                    @Value("${prosper1099.cache.time-to-live:24h}") Duration timeToLive,
+                    @Value("${prosper1099.cache.directory:}") String directory,
+                    @Value("${prosper1099.cache.max-directory-size:1GB}") DataSize maxDirectorySize) throws IOException {
+        this(enabled, maxSize, maxEntrySize, timeToLive, directory, maxDirectorySize, Clock.systemUTC());
+    }
+
+    ConversionCache(boolean enabled, DataSize maxSize, DataSize maxEntrySize, Duration timeToLive, String directory,
+                    DataSize maxDirectorySize, Clock clock) throws IOException {
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxBytes);
+        this.timeToLive = timeToLive;
+        this.directory = enabled && StringUtils.hasText(directory) ? Paths.get(directory).resolve(getVersionName()) : null;
+        this.temporaryDirectory = this.directory != null ? this.directory.resolveSibling("tmp") : null;
+        this.maxDirectoryBytes = maxDirectorySize.toBytes();
+        this.clock = clock;
+
+        if (this.directory != null) {
+            Files.createDirectories(this.directory);
+            Files.createDirectories(this.temporaryDirectory);
+            try (Stream<Path> files = Files.list(this.directory)) {
+                directoryBytes = files.mapToLong(ConversionCache::size).sum();
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the subdirectory for results of this version, e.g. v1-1.1.5, or v1 when the application
+     * doesn't run from its jar.
+     */
+    static String getVersionName() {
+        String applicationVersion = ConversionCache.class.getPackage().getImplementationVersion();
+        return "v" + RESULT_VERSION + (applicationVersion != null ? "-" + applicationVersion : "");
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached result or null.
+     */
+    byte[] get(String key) {
+
+        if (!enabled) {
+            return null;
+        }
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry.created)) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                remove(key);
+            }
+        }
+
+        byte[] value = readFromDirectory(key);
+        if (value != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, value);
+            return value;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String key, byte[] value) {
+
+        if (!enabled || value.length > maxEntryBytes) {
+            return;
+        }
+
+        putInMemory(key, value);
+        writeToDirectory(key, value);
+    }
+
+    /**
+     * Wraps the output stream so that everything written to it is also recorded. The recorded bytes are cached
+     * when {@link Recording#commit()} is called, unless they grew larger than the maximum entry size.
+     */
+    Recording record(String key, OutputStream out) {
+        return new Recording(key, out);
+    }
+
+    Map<String, Long> getStatistics() {
+
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits.get());
+        statistics.put("diskHits", diskHits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        synchronized (this) {
+            statistics.put("entries", (long) entries.size());
+            statistics.put("bytes", bytes);
+            statistics.put("directoryBytes", directoryBytes);
+        }
+
+        return statistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("prosper1099.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("prosper1099.cache.requests", diskHits, AtomicLong::get).tag("result", "disk-hit").register(registry);
+        FunctionCounter.builder("prosper1099.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("prosper1099.cache.evictions", evictions, AtomicLong::get).register(registry);
+
+        Gauge.builder("prosper1099.cache.size", this, cache -> cache.getStatistics().get("bytes"))
+                .tag("tier", "memory").baseUnit("bytes").register(registry);
+        Gauge.builder("prosper1099.cache.size", this, cache -> cache.getStatistics().get("directoryBytes"))
+                .tag("tier", "directory").baseUnit("bytes").register(registry);
+        Gauge.builder("prosper1099.cache.entries", this, cache -> cache.getStatistics().get("entries")).register(registry);
+    }
+
+    private synchronized void putInMemory(String key, byte[] value) {
+
+        remove(key);
+
+        entries.put(key, new Entry(value, clock.millis()));
+        bytes += value.length;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().value.length;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes a replaced or expired entry, which doesn't count as an eviction.
+     */
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.value.length;
+        }
+    }
+
+    private boolean isExpired(long created) {
+        return clock.millis() - created > timeToLive.toMillis();
+    }
+
+    private byte[] readFromDirectory(String key) {
+
+        if (directory == null) {
+            return null;
+        }
+
+        Path file = directory.resolve(key);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            if (isExpired(Files.getLastModifiedTime(file).toMillis())) {
+                deleteFromDirectory(file);
+                return null;
+            }
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read cached result {}", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDirectory(String key, byte[] value) {
+
+        if (directory == null) {
+            return;
+        }
+
+        Path file = directory.resolve(key);
+        try {
+            Path temporaryFile = Files.createTempFile(temporaryDirectory, key, ".tmp");
+            Files.write(temporaryFile, value);
+            long replacedBytes = size(file);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                directoryBytes += value.length - replacedBytes;
+            }
+            evictFromDirectory();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to cache result in {}", file, e);
+        }
+    }
+
+    /**
+     * Deletes the least recently written results until the directory is within its maximum size.
+     */
+    private void evictFromDirectory() throws IOException {
+
+        synchronized (this) {
+            if (directoryBytes <= maxDirectoryBytes) {
+                return;
+            }
+        }
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.sorted(Comparator.comparing(ConversionCache::lastModified)).collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            synchronized (this) {
+                if (directoryBytes <= maxDirectoryBytes) {
+                    return;
+                }
+            }
+            if (deleteFromDirectory(file)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean deleteFromDirectory(Path file) throws IOException {
+        long size = size(file);
+        if (Files.deleteIfExists(file)) {
+            synchronized (this) {
+                directoryBytes -= size;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static class Entry {
+
+        private final byte[] value;
+        private final long created;
+
+
+        Entry(byte[] value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+
+    /**
+     * An output stream that records what is written to it for the cache.
+     */
+    class Recording extends FilterOutputStream {
+
+        private final String key;
+        private ByteArrayOutputStream recorded;
+
+
+        private Recording(String key, OutputStream out) {
+            super(out);
+            this.key = key;
+            this.recorded = enabled ? new ByteArrayOutputStream() : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (recorded != null) {
+                recorded.write(b);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (recorded != null) {
+                recorded.write(b, off, len);
+                checkSize();
+            }
+        }
+
+        /**
+         * Caches the recorded bytes. Only call this once the result is complete.
+         */
+        void commit() {
+            if (recorded != null) {
+                put(key, recorded.toByteArray());
+                recorded = null;
+            }
+        }
+
+        private void checkSize() {
+            // Results that are too large to cache are not recorded any further.
+            if (recorded.size() > maxEntryBytes) {
+                recorded = null;
+            }
+        }
+    }
+}
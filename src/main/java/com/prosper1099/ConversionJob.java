@@ -0,0 +1,73 @@
+package com.prosper1099;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A conversion running in the background. Clients poll the status and download the CSV once it succeeded.
+ */
+public class ConversionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id;
+    private final Instant created;
+    private final Path csvFile;
+    private volatile Status status = Status.QUEUED;
+    private volatile String error;
+    private volatile Instant finished;
+
+
+    ConversionJob(String id, Instant created, Path csvFile) {
+        this.id = id;
+        this.created = created;
+        this.csvFile = csvFile;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns why the conversion failed, or null if it didn't.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns when the conversion succeeded or failed, or null while it is queued or running.
+     */
+    public Instant getFinished() {
+        return finished;
+    }
+
+    Path getCsvFile() {
+        return csvFile;
+    }
+
+    void running() {
+        status = Status.RUNNING;
+    }
+
+    void succeeded(Instant finished) {
+        this.finished = finished;
+        status = Status.SUCCEEDED;
+    }
+
+    void failed(String error, Instant finished) {
+        this.error = error;
+        this.finished = finished;
+        status = Status.FAILED;
+    }
+}
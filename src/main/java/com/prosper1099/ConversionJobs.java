@@ -0,0 +1,202 @@
+package com.prosper1099;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs conversions in the background on a bounded number of threads. Jobs wait in a queue of bounded capacity,
+ * and new jobs are rejected while the queue is full, before their PDF is spooled. The CSVs are written to temporary files, which are deleted
+ * together with the job once the time to live has passed after it finished.
+ */
+@Component
+public class ConversionJobs implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionJobs.class);
+
+    private final DocumentLoader documentLoader;
+    private final CsvConverter csvConverter;
+    private final Duration timeToLive;
+    private final Clock clock = Clock.systemUTC();
+    private final ThreadPoolExecutor jobPool;
+    private final Semaphore slots;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+
+    @Autowired
+    ConversionJobs(DocumentLoader documentLoader, CsvConverter csvConverter,
+                   @Value("${prosper1099.jobs.parallelism:0}") int parallelism,
+                   @Value("${prosper1099.jobs.queue-capacity:100}") int queueCapacity,
+                   @Value("${prosper1099.jobs.time-to-live:1h}") Duration timeToLive) {
+        this.documentLoader = documentLoader;
+        this.csvConverter = csvConverter;
+        this.timeToLive = timeToLive;
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.jobPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("conversion-job-"));
+        // A slot for each thread and each place in the queue, taken before the upload is spooled.
+        this.slots = new Semaphore(threads + queueCapacity);
+    }
+
+    /**
+     * Queues the conversion of the PDF.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    ConversionJob submit(MultipartFile pdfFile) throws IOException {
+
+        if (!slots.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("The job queue is full.");
+        }
+
+        DocumentLoader.SpooledDocument document = null;
+        Path csvFile = null;
+        try {
+            document = documentLoader.spool(pdfFile);
+            csvFile = Files.createTempFile("prosper-1099-", ".csv");
+            ConversionJob job = new ConversionJob(UUID.randomUUID().toString(), clock.instant(), csvFile);
+
+            jobs.put(job.getId(), job);
+            try {
+                jobPool.execute(new JobTask(job, document));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw e;
+            }
+
+            return job;
+        } catch (IOException | RuntimeException e) {
+            if (csvFile != null) {
+                Files.deleteIfExists(csvFile);
+            }
+            if (document != null) {
+                document.close();
+            }
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the job, or null if there is no such job or it expired.
+     */
+    ConversionJob get(String id) {
+        return jobs.get(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("prosper1099.jobs.queued", jobPool, pool -> pool.getQueue().size()).register(registry);
+        Gauge.builder("prosper1099.jobs.running", jobPool, ThreadPoolExecutor::getActiveCount).register(registry);
+        FunctionCounter.builder("prosper1099.jobs.rejected", rejected, AtomicLong::get).register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${prosper1099.jobs.expiration-interval:PT1M}")
+    void expire() {
+
+        Instant expired = clock.instant().minus(timeToLive);
+        for (ConversionJob job : jobs.values()) {
+            if (job.getFinished() != null && job.getFinished().isBefore(expired)) {
+                jobs.remove(job.getId());
+                deleteCsvFile(job);
+            }
+        }
+    }
+
+    /**
+     * Interrupts the running jobs and deletes the PDFs of the queued jobs and the CSVs of all jobs.
+     */
+    @PreDestroy
+    void shutdown() {
+
+        List<Runnable> queued = jobPool.shutdownNow();
+        for (Runnable task : queued) {
+            ((JobTask) task).closeDocument();
+        }
+
+        jobs.values().forEach(ConversionJobs::deleteCsvFile);
+    }
+
+    private static void deleteCsvFile(ConversionJob job) {
+        try {
+            Files.deleteIfExists(job.getCsvFile());
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete {}", job.getCsvFile(), e);
+        }
+    }
+
+
+    /**
+     * Converts the spooled PDF of a job and deletes it afterwards.
+     */
+    private class JobTask implements Runnable {
+
+        private final ConversionJob job;
+        private final DocumentLoader.SpooledDocument document;
+
+
+        JobTask(ConversionJob job, DocumentLoader.SpooledDocument document) {
+            this.job = job;
+            this.document = document;
+        }
+
+        @Override
+        public void run() {
+
+            job.running();
+
+            try (document; OutputStream out = Files.newOutputStream(job.getCsvFile())) {
+                csvConverter.convert(document, out);
+            } catch (Exception e) {
+                job.failed(e.getMessage() != null ? e.getMessage() : e.toString(), clock.instant());
+                return;
+            } finally {
+                slots.release();
+            }
+
+            job.succeeded(clock.instant());
+        }
+
+        /**
+         * Deletes the PDF of a job that never ran.
+         */
+        void closeDocument() {
+            try {
+                document.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to delete the PDF of job {}", job.getId(), e);
+            }
+        }
+    }
+}
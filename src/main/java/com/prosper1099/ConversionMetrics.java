@@ -0,0 +1,154 @@
+package com.prosper1099;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the duration of each stage of a conversion and the size of the converted documents. All meters are
+ * tagged with the tax year and the transaction parser, which are "unknown" if the conversion failed before the
+ * tax year was found.
+ */
+@Component
+public class ConversionMetrics {
+
+    static final String UNKNOWN = "unknown";
+
+    /**
+     * The stages of a conversion. The stages run one after the other, except for extraction, tax year detection,
+     * parsing and output, which are interleaved as lines are pushed through the pipeline. The time of each of these
+     * is the time spent in it on the converting thread, excluding the other stages. The lines of page ranges
+     * extracted in parallel are matched on the extraction threads, so only carrying the parser state across them
+     * counts as parsing.
+     */
+    enum Stage {
+        ADMISSION, LOAD, EXTRACTION, TAX_YEAR, PARSING, OUTPUT;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private final MeterRegistry meterRegistry;
+
+
+    @Autowired
+    ConversionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    Sample start(long fileSize) {
+        return new Sample(fileSize);
+    }
+
+
+    /**
+     * Collects the metrics of a single conversion, which are recorded once it has finished.
+     */
+    class Sample {
+
+        private final long start = System.nanoTime();
+        private final long fileSize;
+        private final long[] stageNanos = new long[Stage.values().length];
+        private String taxYear = UNKNOWN;
+        private String parser = UNKNOWN;
+        private int pages;
+        private int skippedPages;
+        private long lines;
+        private long transactions;
+
+
+        private Sample(long fileSize) {
+            this.fileSize = fileSize;
+        }
+
+        void taxYear(String taxYear, TransactionParser transactionParser) {
+            this.taxYear = taxYear;
+            this.parser = transactionParser.getClass().getSimpleName();
+        }
+
+        void pages(int pages) {
+            this.pages = pages;
+        }
+
+        void skippedPages(int skippedPages) {
+            this.skippedPages = skippedPages;
+        }
+
+        void line() {
+            lines++;
+        }
+
+        void lines(int lines) {
+            this.lines += lines;
+        }
+
+        void transaction() {
+            transactions++;
+        }
+
+        /**
+         * Adds the time since the given start to the stage and returns the current time.
+         */
+        long stage(Stage stage, long stageStart) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - stageStart;
+            return now;
+        }
+
+        long getNanos(Stage stage) {
+            return stageNanos[stage.ordinal()];
+        }
+
+        void setNanos(Stage stage, long nanos) {
+            stageNanos[stage.ordinal()] = nanos;
+        }
+
+        void stop(boolean succeeded) {
+
+            Tags tags = Tags.of("taxYear", taxYear, "parser", parser);
+
+            Timer.builder("prosper1099.conversion")
+                    .description("Time to convert a document, excluding documents returned from the cache")
+                    .tags(tags)
+                    .tag("outcome", succeeded ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            for (Stage stage : Stage.values()) {
+                Timer.builder("prosper1099.conversion.stage")
+                        .description("Time spent in each stage of a conversion")
+                        .tags(tags)
+                        .tag("stage", stage.tag)
+                        .register(meterRegistry)
+                        .record(stageNanos[stage.ordinal()], TimeUnit.NANOSECONDS);
+            }
+
+            DistributionSummary.builder("prosper1099.document.pages")
+                    .description("Number of pages of converted documents")
+                    .baseUnit("pages")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(pages);
+            DistributionSummary.builder("prosper1099.document.size")
+                    .description("Size of converted documents")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(fileSize);
+
+            Counter.builder("prosper1099.pages").baseUnit("pages").tags(tags).register(meterRegistry).increment(pages);
+            Counter.builder("prosper1099.pages.skipped")
+                    .description("Pages skipped without extracting their text, as they can't contain transactions")
+                    .baseUnit("pages").tags(tags).register(meterRegistry).increment(skippedPages);
+            Counter.builder("prosper1099.lines").baseUnit("lines").tags(tags).register(meterRegistry).increment(lines);
+            Counter.builder("prosper1099.transactions").baseUnit("transactions").tags(tags).register(meterRegistry).increment(transactions);
+            Counter.builder("prosper1099.bytes").baseUnit("bytes").tags(tags).register(meterRegistry).increment(fileSize);
+        }
+    }
+}
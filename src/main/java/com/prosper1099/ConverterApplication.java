@@ -4,8 +4,10 @@ package com.prosper1099;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @ComponentScan({"com.prosper1099","asset.pipeline.springboot"})
 public class ConverterApplication {
 
@@ -0,0 +1,173 @@
+package com.prosper1099;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.Banner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Converts PDFs on disk to CSVs from the command line, without the web server, the controllers and the caches of the
+ * {@link ConverterApplication}. Only the beans needed to parse documents are created, so the CLI starts quickly.
+ * <p>
+ * Usage: {@code ConverterCli [--threads=N] <file or directory>...}. Directories are searched for PDFs recursively and
+ * each CSV is written next to its PDF. The files are converted in parallel, by default on one thread per core. The
+ * cli profile in application-cli.yml extracts each file on a single thread.
+ */
+@Import({DocumentLoader.class, DocumentParser.class, DocumentConverter.class, TransactionParsers.class,
+        MemoryAdmissionControl.class, ConversionMetrics.class, FontCache.class})
+@ComponentScan("com.prosper1099.parser")
+public class ConverterCli implements ApplicationRunner, ExitCodeGenerator {
+
+    private final DocumentLoader documentLoader;
+    private final DocumentConverter documentConverter;
+    private final MeterRegistry meterRegistry;
+    private final int threads;
+    private int exitCode;
+
+
+    @Autowired
+    ConverterCli(DocumentLoader documentLoader, DocumentConverter documentConverter, MeterRegistry meterRegistry,
+                 @Value("${threads:0}") int threads) {
+        this.documentLoader = documentLoader;
+        this.documentConverter = documentConverter;
+        this.meterRegistry = meterRegistry;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static void main(String[] args) {
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ConverterCli.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .profiles("cli")
+                .run(args);
+
+        System.exit(SpringApplication.exit(context));
+    }
+
+    @Bean
+    static MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+
+        List<Path> files = new ArrayList<>();
+        for (String arg : args.getNonOptionArgs()) {
+            collectFiles(Paths.get(arg), files);
+        }
+
+        if (files.isEmpty()) {
+            System.err.println("Usage: ConverterCli [--threads=N] <file or directory>...");
+            exitCode = 2;
+            return;
+        }
+
+        long start = System.nanoTime();
+        int failed = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()),
+                new CustomizableThreadFactory("cli-conversion-"));
+        try {
+            List<Future<Path>> csvs = new ArrayList<>(files.size());
+            for (Path file : files) {
+                csvs.add(executor.submit(() -> convert(file)));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    System.out.println(files.get(i) + " -> " + csvs.get(i).get());
+                } catch (ExecutionException e) {
+                    System.err.println(files.get(i) + ": " + e.getCause().getMessage());
+                    failed++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double pages = count("prosper1099.pages");
+        System.out.printf(Locale.ROOT, "Converted %d of %d files, %.0f pages and %.0f transactions in %.2f s on %d threads: %.1f files/s, %.1f pages/s%n",
+                files.size() - failed, files.size(), pages, count("prosper1099.transactions"), seconds,
+                Math.min(threads, files.size()), (files.size() - failed) / seconds, pages / seconds);
+
+        exitCode = failed > 0 ? 1 : 0;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Writes the CSV next to the PDF, replacing its extension. A partly written CSV is deleted if the conversion fails.
+     */
+    private Path convert(Path pdf) throws IOException {
+
+        String fileName = pdf.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        Path csv = pdf.resolveSibling((extension > 0 ? fileName.substring(0, extension) : fileName) + ".csv");
+
+        try (Writer out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            documentConverter.convert(documentLoader.open(pdf), new CsvTransactionHandler(out));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(csv);
+            throw e;
+        }
+
+        return csv;
+    }
+
+    private static void collectFiles(Path path, List<Path> files) throws IOException {
+
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                    .sorted()
+                    .forEach(files::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+}
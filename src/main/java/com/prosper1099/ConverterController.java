@@ -1,24 +1,24 @@
 
 package com.prosper1099;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
-import org.apache.pdfbox.io.RandomAccessBuffer;
-import org.apache.pdfbox.pdfparser.PDFParser;
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides HTTP endpoints that can be called by external applications.
@@ -27,45 +27,124 @@ import java.util.List;
 public class ConverterController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConverterController.class);
-    private static final String EXPECTED_FIRST_LINE = "PROSPER FUNDING LLC";
 
-    private final DocumentParser documentParser;
-    private final TransactionParsers transactionParsers;
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_ZIP = new MediaType("application", "zip");
+
+    private final DocumentLoader documentLoader;
+    private final CsvConverter csvConverter;
+    private final JsonConverter jsonConverter;
+    private final DocumentConverter documentConverter;
+    private final BatchConverter batchConverter;
+    private final ConversionCache conversionCache;
+    private final FontCache fontCache;
 
 
     @Autowired
-    ConverterController(DocumentParser documentParser, TransactionParsers transactionParsers) {
-        this.documentParser = documentParser;
-        this.transactionParsers = transactionParsers;
+    ConverterController(DocumentLoader documentLoader, CsvConverter csvConverter, JsonConverter jsonConverter,
+                        DocumentConverter documentConverter, BatchConverter batchConverter, ConversionCache conversionCache,
+                        FontCache fontCache) {
+        this.documentLoader = documentLoader;
+        this.csvConverter = csvConverter;
+        this.jsonConverter = jsonConverter;
+        this.documentConverter = documentConverter;
+        this.batchConverter = batchConverter;
+        this.conversionCache = conversionCache;
+        this.fontCache = fontCache;
     }
 
-    @ResponseBody
-    @RequestMapping(method = RequestMethod.POST, value = "/convertPdfToCsv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = "text/csv")
-    public String convertPdfToCsv(@RequestParam("file") MultipartFile pdfFile) throws IOException {
+    /**
+     * Streams the CSV to the client while the document is being parsed. CSV is returned unless the client accepts
+     * JSON or NDJSON in preference.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/convertPdfToCsv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> convertPdfToCsv(@RequestParam("file") MultipartFile pdfFile) {
 
-        PDFParser pdfParser = new PDFParser(new RandomAccessBuffer(pdfFile.getInputStream()));
+        StreamingResponseBody responseBody = outputStream -> {
 
-        pdfParser.parse();
+            try (DocumentLoader.SpooledDocument document = documentLoader.spool(pdfFile)) {
+                csvConverter.convert(document, outputStream);
+            }
+        };
 
-        List<String> lines;
-        try (PDDocument pdDocument = pdfParser.getPDDocument()) {
-            lines = documentParser.parseDocument(pdDocument);
-        }
+        return ResponseEntity.ok().contentType(TEXT_CSV).body(responseBody);
+    }
+
+    /**
+     * Streams the transactions to the client as NDJSON, one object per line, while the document is being parsed.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/convertPdfToCsv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> convertPdfToNdjson(@RequestParam("file") MultipartFile pdfFile) {
+        return convertPdfToJson(pdfFile, true, MediaType.APPLICATION_NDJSON);
+    }
+
+    /**
+     * Streams the transactions to the client as a JSON array while the document is being parsed.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/convertPdfToCsv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> convertPdfToJson(@RequestParam("file") MultipartFile pdfFile) {
+        return convertPdfToJson(pdfFile, false, MediaType.APPLICATION_JSON);
+    }
+
+    private ResponseEntity<StreamingResponseBody> convertPdfToJson(MultipartFile pdfFile, boolean newlineDelimited, MediaType contentType) {
+
+        StreamingResponseBody responseBody = outputStream -> {
+
+            try (DocumentLoader.SpooledDocument document = documentLoader.spool(pdfFile)) {
+                jsonConverter.convert(document, newlineDelimited, outputStream);
+            }
+        };
 
-        if (lines.isEmpty() || !lines.get(0).equals(EXPECTED_FIRST_LINE)) {
-            throw new IllegalStateException("First line must match \"" + EXPECTED_FIRST_LINE + "\".");
+        return ResponseEntity.ok().contentType(contentType).body(responseBody);
+    }
+
+    /**
+     * Returns the transaction count, sales proceeds, cost basis and gain or loss of the document per Form 8949
+     * reporting category and per term. The totals are added up while the document is parsed.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/summarizePdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public TransactionSummary summarizePdf(@RequestParam("file") MultipartFile pdfFile) throws IOException {
+
+        TransactionSummary transactionSummary = new TransactionSummary();
+
+        try (DocumentLoader.SpooledDocument document = documentLoader.spool(pdfFile)) {
+            documentConverter.convert(document, transactionSummary);
         }
 
-        String taxYear = documentParser.parseTaxYear(lines);
+        return transactionSummary;
+    }
 
-        TransactionParser transactionParser = transactionParsers.getTransactionParser(taxYear);
+    /**
+     * Converts several PDFs, or the PDFs in ZIP archives, at once. The CSVs are streamed back in a ZIP archive
+     * in the order the conversions finish, followed by a manifest listing the CSV or the error of each PDF.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/convertPdfsToZip", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> convertPdfsToZip(@RequestParam("files") List<MultipartFile> files) {
 
-        List<List<String>> transactions = transactionParser.parse1099BTransactions(lines);
+        StreamingResponseBody responseBody = outputStream -> batchConverter.convert(files, outputStream);
 
-        StringBuilder out = new StringBuilder();
-        CSVPrinter printer = new CSVPrinter(out, CSVFormat.Builder.create().setHeader(transactionParser.getHeader()).build());
-        printer.printRecords(transactions);
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"prosper-1099.zip\"")
+                .body(responseBody);
+    }
 
-        return out.toString();
+    /**
+     * Returns the hit, miss and eviction counts and the size of the {@link ConversionCache}.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/cacheStatistics", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<String, Long> getCacheStatistics() {
+        return conversionCache.getStatistics();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts and the number of idle fonts of the {@link FontCache}.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/fontCacheStatistics", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<String, Long> getFontCacheStatistics() {
+        return fontCache.getStatistics();
     }
 }
@@ -0,0 +1,49 @@
+package com.prosper1099;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts spooled documents to CSV. CSVs of documents that were converted before are returned from the
+ * {@link ConversionCache} without parsing.
+ */
+@Component
+public class CsvConverter {
+
+    private final DocumentConverter documentConverter;
+    private final ConversionCache conversionCache;
+
+
+    @Autowired
+    CsvConverter(DocumentConverter documentConverter, ConversionCache conversionCache) {
+        this.documentConverter = documentConverter;
+        this.conversionCache = conversionCache;
+    }
+
+    /**
+     * Writes the CSV to the output stream while the document is being parsed. Each record is written as soon as
+     * its transaction is parsed, so neither the lines of the document nor the CSV are held in memory.
+     */
+    void convert(DocumentLoader.SpooledDocument document, OutputStream outputStream) throws IOException {
+
+        String cacheKey = conversionCache.isEnabled() ? document.getDigest() + ".csv" : null;
+        byte[] csv = conversionCache.get(cacheKey);
+        if (csv != null) {
+            outputStream.write(csv);
+            return;
+        }
+
+        ConversionCache.Recording recording = conversionCache.record(cacheKey, outputStream);
+        Writer out = new OutputStreamWriter(recording, StandardCharsets.UTF_8);
+        documentConverter.convert(document, new CsvTransactionHandler(out));
+
+        out.flush();
+        recording.commit();
+    }
+}
@@ -0,0 +1,58 @@
+package com.prosper1099;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Prints each transaction as a CSV record as soon as it is parsed.
+ */
+class CsvTransactionHandler implements TransactionHandler {
+
+    private final Appendable out;
+    private final StringBuilder buffer = new StringBuilder();
+    private CSVPrinter printer;
+
+
+    CsvTransactionHandler(Appendable out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start(String taxYear, TransactionParser transactionParser) {
+        try {
+            printer = new CSVPrinter(out, CSVFormat.Builder.create().setHeader(transactionParser.getHeader()).build());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Prints the fields in the order of the header.
+     */
+    @Override
+    public void transaction(Transaction transaction) {
+        try {
+            printer.printRecord(formatDate(transaction.dateSold()),
+                    formatDate(transaction.dateAcquired()),
+                    formatAmount(transaction.salesProceeds()),
+                    transaction.description(),
+                    formatAmount(transaction.costBasis()),
+                    transaction.reportingCategory());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String formatDate(int epochDay) {
+        buffer.setLength(0);
+        return TransactionFormat.appendDate(buffer, epochDay).toString();
+    }
+
+    private String formatAmount(long cents) {
+        buffer.setLength(0);
+        return TransactionFormat.appendAmount(buffer, cents).toString();
+    }
+}
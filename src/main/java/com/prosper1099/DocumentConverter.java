@@ -0,0 +1,220 @@
+package com.prosper1099;
+
+import com.prosper1099.ConversionMetrics.Stage;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Converts PDF documents containing Prosper 1099-B records into transactions. The lines of the document are
+ * pushed from the {@link DocumentParser} to the {@link TransactionParser} as they are extracted, so only the
+ * lines preceding the tax year are ever buffered. The issuer and the tax year are checked on the first pages,
+ * so other documents are rejected without extracting all of their pages.
+ */
+@Component
+public class DocumentConverter {
+
+    static final String EXPECTED_FIRST_LINE = "PROSPER FUNDING LLC";
+
+    private final DocumentParser documentParser;
+    private final TransactionParsers transactionParsers;
+    private final MemoryAdmissionControl memoryAdmissionControl;
+    private final ConversionMetrics conversionMetrics;
+
+
+    @Autowired
+    DocumentConverter(DocumentParser documentParser, TransactionParsers transactionParsers,
+                      MemoryAdmissionControl memoryAdmissionControl, ConversionMetrics conversionMetrics) {
+        this.documentParser = documentParser;
+        this.transactionParsers = transactionParsers;
+        this.memoryAdmissionControl = memoryAdmissionControl;
+        this.conversionMetrics = conversionMetrics;
+    }
+
+    /**
+     * Converts the document once the {@link MemoryAdmissionControl} admits it.
+     */
+    void convert(DocumentSource documentSource, TransactionHandler transactionHandler) throws IOException {
+
+        ConversionMetrics.Sample sample = conversionMetrics.start(documentSource.getSize());
+        boolean succeeded = false;
+
+        try {
+            convert(documentSource, new LineRouter(transactionHandler, sample), sample);
+            succeeded = true;
+        } finally {
+            sample.stop(succeeded);
+        }
+    }
+
+    private void convert(DocumentSource documentSource, LineRouter lineRouter, ConversionMetrics.Sample sample) throws IOException {
+
+        long stageStart = System.nanoTime();
+        // The stage the time since stageStart is recorded under if the conversion fails, null once it is recorded.
+        Stage stage = Stage.ADMISSION;
+
+        try (MemoryAdmissionControl.Admission admission = memoryAdmissionControl.admit(documentSource.getSize())) {
+            stageStart = sample.stage(Stage.ADMISSION, stageStart);
+            stage = Stage.LOAD;
+
+            try (PDDocument document = documentSource.load()) {
+                stageStart = sample.stage(Stage.LOAD, stageStart);
+                sample.pages(document.getNumberOfPages());
+                stage = Stage.ADMISSION;
+                admission.reservePages(document.getNumberOfPages());
+                stageStart = sample.stage(Stage.ADMISSION, stageStart);
+                stage = Stage.EXTRACTION;
+
+                // Reject documents from other issuers or without a tax year before extracting the whole document.
+                int probedPages = documentParser.probeDocument(document, lineRouter);
+                lineRouter.probed();
+
+                sample.skippedPages(documentParser.parseDocument(document, documentSource, probedPages,
+                        lineRouter.transactionParser, lineRouter, lineRouter::acceptChunk));
+
+                recordExtraction(sample, lineRouter, stageStart);
+                stage = null;
+            }
+
+            lineRouter.finish();
+        } finally {
+            if (stage == Stage.EXTRACTION) {
+                recordExtraction(sample, lineRouter, stageStart);
+            } else if (stage != null) {
+                sample.stage(stage, stageStart);
+            }
+            sample.setNanos(Stage.PARSING, lineRouter.parsingNanos - sample.getNanos(Stage.OUTPUT));
+        }
+    }
+
+    /**
+     * Records the time since the extraction started that the line router didn't spend as the time spent extracting
+     * the lines, which are parsed as they are extracted.
+     */
+    private static void recordExtraction(ConversionMetrics.Sample sample, LineRouter lineRouter, long extractionStart) {
+        long interleavedNanos = System.nanoTime() - extractionStart;
+        sample.setNanos(Stage.EXTRACTION, interleavedNanos - lineRouter.parsingNanos - sample.getNanos(Stage.TAX_YEAR));
+    }
+
+
+    /**
+     * Validates the first line and buffers lines until the tax year is found. Then it replays the buffered lines
+     * to the transaction parser for that year and forwards all later lines directly.
+     */
+    private class LineRouter implements Consumer<String> {
+
+        private final TransactionHandler transactionHandler;
+        private final ConversionMetrics.Sample sample;
+
+        private boolean firstLine = true;
+        private List<String> bufferedLines = new ArrayList<>();
+        private TransactionParser transactionParser;
+        private StreamingTransactionParser.LineParser lineParser;
+        private long parsingNanos;
+
+
+        LineRouter(TransactionHandler transactionHandler, ConversionMetrics.Sample sample) {
+            this.transactionHandler = transactionHandler;
+            this.sample = sample;
+        }
+
+        @Override
+        public void accept(String line) {
+
+            sample.line();
+
+            if (firstLine) {
+                if (!line.equals(EXPECTED_FIRST_LINE)) {
+                    throw new IllegalStateException("First line must match \"" + EXPECTED_FIRST_LINE + "\".");
+                }
+                firstLine = false;
+            }
+
+            long parsingStart = System.nanoTime();
+
+            if (lineParser != null) {
+                lineParser.parseLine(line);
+                parsingNanos += System.nanoTime() - parsingStart;
+                return;
+            }
+
+            bufferedLines.add(line);
+
+            if (transactionParser == null) {
+                String taxYear = documentParser.matchTaxYear(line);
+                parsingStart = sample.stage(Stage.TAX_YEAR, parsingStart);
+                if (taxYear != null) {
+                    start(taxYear);
+                    parsingNanos += System.nanoTime() - parsingStart;
+                }
+            }
+        }
+
+        /**
+         * Parses the lines of a page range matched on an extraction thread, which follow the lines accepted so far.
+         */
+        void acceptChunk(StreamingTransactionParser.LineChunk chunk) {
+
+            long parsingStart = System.nanoTime();
+
+            sample.lines(chunk.lineCount());
+            lineParser.parseChunk(chunk);
+
+            parsingNanos += System.nanoTime() - parsingStart;
+        }
+
+        private void start(String taxYear) {
+
+            transactionParser = transactionParsers.getTransactionParser(taxYear);
+            sample.taxYear(taxYear, transactionParser);
+            transactionHandler.start(taxYear, transactionParser);
+
+            if (transactionParser instanceof StreamingTransactionParser streamingTransactionParser) {
+                lineParser = streamingTransactionParser.newLineParser(this::transaction);
+                for (String bufferedLine : bufferedLines) {
+                    lineParser.parseLine(bufferedLine);
+                }
+                bufferedLines = null;
+            }
+        }
+
+        private void transaction(Transaction transaction) {
+            long outputStart = System.nanoTime();
+            sample.transaction();
+            transactionHandler.transaction(transaction);
+            sample.stage(Stage.OUTPUT, outputStart);
+        }
+
+        /**
+         * Called after the first pages have been extracted, which must contain the first line and the tax year.
+         */
+        void probed() {
+
+            if (firstLine) {
+                throw new IllegalStateException("First line must match \"" + EXPECTED_FIRST_LINE + "\".");
+            }
+
+            if (transactionParser == null) {
+                throw new IllegalStateException("Unable to find tax year.");
+            }
+        }
+
+        void finish() {
+
+            long parsingStart = System.nanoTime();
+
+            if (lineParser != null) {
+                lineParser.finish();
+            } else {
+                transactionParser.parse1099BTransactions(bufferedLines).forEach(this::transaction);
+            }
+
+            parsingNanos += System.nanoTime() - parsingStart;
+        }
+    }
+}
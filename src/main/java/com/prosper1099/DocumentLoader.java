@@ -0,0 +1,180 @@
+package com.prosper1099;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Loads PDF documents from files instead of from memory. PDFBox reads the file through a {@link java.io.RandomAccessFile}
+ * and keeps its own buffers in main memory only up to the configured limit, spilling the rest to scratch files.
+ * This keeps the heap used by each document roughly independent of its size.
+ */
+@Component
+public class DocumentLoader {
+
+    private final long maxMainMemoryBytes;
+    private final File scratchDirectory;
+    private final FontCache fontCache;
+
+
+    @Autowired
+    DocumentLoader(@Value("${prosper1099.pdf.max-main-memory:16MB}") DataSize maxMainMemory,
+                   @Value("${prosper1099.pdf.scratch-directory:}") String scratchDirectory,
+                   FontCache fontCache) {
+        this.maxMainMemoryBytes = maxMainMemory.toBytes();
+        this.scratchDirectory = StringUtils.hasText(scratchDirectory) ? new File(scratchDirectory) : null;
+        this.fontCache = fontCache;
+    }
+
+    /**
+     * Moves the uploaded file to a temporary file the document is loaded from, renaming it where possible. The temporary file is deleted when
+     * the returned document is closed.
+     */
+    SpooledDocument spool(MultipartFile pdfFile) throws IOException {
+
+        Path file = createTempFile();
+        try {
+            // transferTo(File) goes through Part.write, which renames the file Tomcat spooled the upload to and only
+            // copies it if that fails, e.g. across file systems. transferTo(Path) would always copy the stream.
+            pdfFile.transferTo(file.toAbsolutePath().toFile());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        return new SpooledDocument(file);
+    }
+
+    /**
+     * Copies the PDF to a temporary file the document is loaded from. The input stream is not closed.
+     */
+    SpooledDocument spool(InputStream in) throws IOException {
+
+        Path file = createTempFile();
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        return new SpooledDocument(file);
+    }
+
+    /**
+     * Loads the document from the file in place, without copying it.
+     */
+    DocumentSource open(Path file) {
+        return new DocumentSource() {
+
+            @Override
+            public PDDocument load() throws IOException {
+                return DocumentLoader.this.load(file);
+            }
+
+            @Override
+            public long getSize() throws IOException {
+                return Files.size(file);
+            }
+        };
+    }
+
+    /**
+     * Loads the document with a resource cache sharing its fonts through the {@link FontCache}.
+     */
+    private PDDocument load(Path file) throws IOException {
+
+        PDDocument document = PDDocument.load(file.toFile(), getMemoryUsageSetting());
+
+        ResourceCache resourceCache = fontCache.newResourceCache();
+        if (resourceCache != null) {
+            document.setResourceCache(resourceCache);
+        }
+
+        return document;
+    }
+
+    private Path createTempFile() throws IOException {
+        return scratchDirectory != null
+                ? Files.createTempFile(scratchDirectory.toPath(), "prosper-1099-", ".pdf")
+                : Files.createTempFile("prosper-1099-", ".pdf");
+    }
+
+    private MemoryUsageSetting getMemoryUsageSetting() {
+
+        MemoryUsageSetting memoryUsageSetting = MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        if (scratchDirectory != null) {
+            memoryUsageSetting.setTempDir(scratchDirectory);
+        }
+
+        return memoryUsageSetting;
+    }
+
+
+    /**
+     * A document stored in a temporary file.
+     */
+    class SpooledDocument implements DocumentSource, Closeable {
+
+        private final Path file;
+
+
+        private SpooledDocument(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public PDDocument load() throws IOException {
+            return DocumentLoader.this.load(file);
+        }
+
+        @Override
+        public long getSize() throws IOException {
+            return Files.size(file);
+        }
+
+        /**
+         * Returns the hex encoded SHA-256 digest of the file, identifying documents by their content.
+         */
+        String getDigest() throws IOException {
+
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int read; (read = in.read(buffer)) != -1; ) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
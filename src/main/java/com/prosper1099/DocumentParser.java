@@ -1,17 +1,29 @@
 
 package com.prosper1099;
 
+import com.prosper1099.StreamingTransactionParser.LineChunk;
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,49 +35,248 @@ public class DocumentParser {
     private static final Pattern TAX_YEAR_PATTERN_2017_TO_2023 = Pattern.compile("Tax Year (\\d\\d\\d\\d) Combined Form");
     private static final Pattern TAX_YEAR_PATTERN_2024_PLUS = Pattern.compile("(20[234]\\d)");
 
+    private final int parallelism;
+    private final int chunkSize;
+    private final int probePages;
+    private final boolean skipPages;
+    private final ForkJoinPool extractionPool;
+
+
+    @Autowired
+    DocumentParser(@Value("${prosper1099.extraction.parallelism:0}") int parallelism,
+                   @Value("${prosper1099.extraction.chunk-size:50}") int chunkSize,
+                   @Value("${prosper1099.extraction.probe-pages:2}") int probePages,
+                   @Value("${prosper1099.extraction.skip-pages:true}") boolean skipPages) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+        this.probePages = Math.max(probePages, 1);
+        this.skipPages = skipPages;
+        this.extractionPool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
     List<String> parseDocument(PDDocument document) throws IOException {
 
         List<String> lines = new ArrayList<>();
 
-        MyPDFTextStripper pdfTextStripper = new MyPDFTextStripper(lines);
+        parseDocument(document, lines::add);
+
+        return lines;
+    }
+
+    /**
+     * Hands each line of the document to the line consumer as soon as it has been extracted.
+     */
+    void parseDocument(PDDocument document, Consumer<String> lineConsumer) throws IOException {
+        extractPages(document, 0, document.getNumberOfPages(), true, null, lineConsumer);
+    }
+
+    /**
+     * Extracts only the first pages of the document, so it can be validated and its tax year detected before the
+     * rest is extracted. Returns the number of pages extracted.
+     */
+    int probeDocument(PDDocument document, Consumer<String> lineConsumer) throws IOException {
+
+        int numberOfPages = document.getNumberOfPages();
+        int probeEndPage = Math.min(probePages, numberOfPages);
+
+        extractPages(document, 1, probeEndPage, probeEndPage == numberOfPages, null, lineConsumer);
+
+        return probeEndPage;
+    }
+
+    /**
+     * Same as {@link #parseDocument(PDDocument, Consumer)}, but starts at the page following the pages extracted by
+     * {@link #probeDocument(PDDocument, Consumer)}, and large documents are split into page ranges that are
+     * extracted in parallel, each from its own copy of the document loaded from the document source. The first
+     * page range is extracted from the given document on the calling thread. The lines of the other page ranges are
+     * handed over in page order once all preceding lines have been handed over. If the transaction parser is a
+     * {@link StreamingTransactionParser}, they are matched on the extraction thread and handed to the chunk consumer,
+     * so matching runs in parallel too, otherwise they are handed to the line consumer one at a time.
+     * <p>
+     * Unless disabled, pages the transaction parser rules out by their {@link PageClassifier page text} are skipped.
+     * Returns the number of pages skipped.
+     */
+    int parseDocument(PDDocument document, DocumentSource documentSource, int probedPages, TransactionParser transactionParser,
+                      Consumer<String> lineConsumer, Consumer<LineChunk> chunkConsumer) throws IOException {
+
+        int numberOfPages = document.getNumberOfPages();
+
+        if (probedPages == numberOfPages) {
+            return 0;
+        }
+
+        PageClassifier pageClassifier = skipPages ? new PageClassifier(transactionParser) : null;
+
+        if (extractionPool == null || numberOfPages - probedPages <= chunkSize) {
+            extractPages(document, probedPages + 1, numberOfPages, true, pageClassifier, lineConsumer);
+            return getSkippedPages(pageClassifier);
+        }
+
+        StreamingTransactionParser matchingParser = transactionParser instanceof StreamingTransactionParser streamingTransactionParser
+                ? streamingTransactionParser : null;
+        Deque<Future<LineChunk>> chunks = new ArrayDeque<>();
+        int firstChunkEndPage = probedPages + chunkSize;
+        int nextStartPage = firstChunkEndPage + 1;
+
+        try {
+            while (chunks.size() < parallelism && nextStartPage <= numberOfPages) {
+                chunks.add(submitChunk(documentSource, nextStartPage, numberOfPages, pageClassifier, matchingParser));
+                nextStartPage += chunkSize;
+            }
+
+            extractPages(document, probedPages + 1, firstChunkEndPage, false, pageClassifier, lineConsumer);
+
+            while (!chunks.isEmpty()) {
+                LineChunk chunk = getChunk(chunks.removeFirst());
+
+                // Keep a bounded number of page ranges in flight so memory doesn't grow with the document size.
+                if (nextStartPage <= numberOfPages) {
+                    chunks.add(submitChunk(documentSource, nextStartPage, numberOfPages, pageClassifier, matchingParser));
+                    nextStartPage += chunkSize;
+                }
+
+                if (chunk instanceof Lines lines) {
+                    lines.lines().forEach(lineConsumer);
+                } else {
+                    chunkConsumer.accept(chunk);
+                }
+            }
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+
+        return getSkippedPages(pageClassifier);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (extractionPool != null) {
+            extractionPool.shutdownNow();
+        }
+    }
+
+    private static int getSkippedPages(PageClassifier pageClassifier) {
+        return pageClassifier != null ? pageClassifier.getSkippedPages() : 0;
+    }
+
+    private Future<LineChunk> submitChunk(DocumentSource documentSource, int startPage, int numberOfPages,
+                                          PageClassifier pageClassifier, StreamingTransactionParser matchingParser) {
+
+        int endPage = Math.min(startPage + chunkSize - 1, numberOfPages);
+
+        return extractionPool.submit(() -> {
+            List<String> lines = new ArrayList<>();
+            try (PDDocument document = documentSource.load()) {
+                extractPages(document, startPage, endPage, endPage == numberOfPages, pageClassifier, lines::add);
+            }
+            return matchingParser != null ? matchingParser.matchLines(lines) : new Lines(lines);
+        });
+    }
+
+    private static LineChunk getChunk(Future<LineChunk> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting text.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void extractPages(PDDocument document, int startPage, int endPage, boolean lastPages,
+                              PageClassifier pageClassifier, Consumer<String> lineConsumer) throws IOException {
+
+        MyPDFTextStripper pdfTextStripper = new MyPDFTextStripper(pageClassifier, lineConsumer);
         pdfTextStripper.setSortByPosition(true);
-        pdfTextStripper.setStartPage(0);
-        pdfTextStripper.setEndPage(document.getNumberOfPages());
+        pdfTextStripper.setStartPage(startPage);
+        pdfTextStripper.setEndPage(endPage);
 
         Writer dummy = new OutputStreamWriter(new ByteArrayOutputStream());
-        pdfTextStripper.writeText(document, dummy);
-
-        // Write the last line for completeness.
-        pdfTextStripper.writeLineSeparator();
+        try {
+            pdfTextStripper.writeText(document, dummy);
+        } finally {
+            // Let other documents use the fonts until this document extracts its next pages.
+            FontCache.releaseFonts(document);
+        }
 
-        return lines;
+        if (lastPages) {
+            // Write the last line for completeness.
+            pdfTextStripper.writeLineSeparator();
+        }
     }
 
     String parseTaxYear(List<String> lines) {
         for (String line : lines) {
-            Matcher matcher1 = TAX_YEAR_PATTERN_2017_TO_2023.matcher(line);
-            Matcher matcher2 = TAX_YEAR_PATTERN_2024_PLUS.matcher(line);
-            if (matcher1.matches()) {
-                return matcher1.group(1);
-            }
-            if (matcher2.matches()) {
-                return matcher2.group(1);
+            String taxYear = matchTaxYear(line);
+            if (taxYear != null) {
+                return taxYear;
             }
         }
 
         throw new IllegalStateException("Unable to find tax year.");
     }
 
+    /**
+     * Returns the tax year if the line contains it, otherwise null.
+     */
+    String matchTaxYear(String line) {
+        if (!line.startsWith("Tax Year ") && line.length() != 4) {
+            return null;
+        }
+
+        Matcher matcher1 = TAX_YEAR_PATTERN_2017_TO_2023.matcher(line);
+        Matcher matcher2 = TAX_YEAR_PATTERN_2024_PLUS.matcher(line);
+        if (matcher1.matches()) {
+            return matcher1.group(1);
+        }
+        if (matcher2.matches()) {
+            return matcher2.group(1);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * The lines of a page range extracted for a transaction parser that doesn't match lines itself.
+     */
+    private record Lines(List<String> lines) implements LineChunk {
+
+        @Override
+        public int lineCount() {
+            return lines.size();
+        }
+    }
 
     private class MyPDFTextStripper extends PDFTextStripper {
 
-        private final List<String> lines;
+        private final PageClassifier pageClassifier;
+        private final Consumer<String> lineConsumer;
         private StringBuilder currentLine = new StringBuilder();
 
 
-        MyPDFTextStripper(List<String> lines) throws IOException {
+        MyPDFTextStripper(PageClassifier pageClassifier, Consumer<String> lineConsumer) throws IOException {
             super();
-            this.lines = lines;
+            this.pageClassifier = pageClassifier;
+            this.lineConsumer = lineConsumer;
+        }
+
+        /**
+         * Skips the pages in the page range the page classifier rules out, before their text is extracted.
+         */
+        @Override
+        public void processPage(PDPage page) throws IOException {
+            int pageNo = getCurrentPageNo();
+            if (pageClassifier == null || pageNo < getStartPage() || pageNo > getEndPage() || pageClassifier.mayContainTransactions(page)) {
+                super.processPage(page);
+            }
         }
 
         /**
@@ -101,7 +312,7 @@ public class DocumentParser {
         }
 
         private void addCurrentLine() {
-            lines.add(currentLine.toString());
+            lineConsumer.accept(currentLine.toString());
 
             // reset the buffer
             currentLine.setLength(0);
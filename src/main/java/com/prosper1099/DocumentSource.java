@@ -0,0 +1,22 @@
+package com.prosper1099;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+
+/**
+ * Loads a PDF document. Each call returns a new, independent {@link PDDocument} so that different threads can
+ * extract text from the same document in parallel.
+ */
+@FunctionalInterface
+public interface DocumentSource {
+
+    PDDocument load() throws IOException;
+
+    /**
+     * Returns the size of the PDF in bytes, or 0 if it isn't known.
+     */
+    default long getSize() throws IOException {
+        return 0;
+    }
+}
@@ -0,0 +1,277 @@
+package com.prosper1099;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares the fonts PDFBox parses from documents across documents, as all Prosper 1099s embed the same fonts. Each
+ * document gets its own {@link ResourceCache}, which looks up fonts by the SHA-256 digest of the font dictionary and
+ * everything it references, including the raw bytes of the embedded font file and the ToUnicode CMap.
+ * <p>
+ * PDFBox fonts keep caches of their own that are not thread safe, so a font is only used by one document at a
+ * time: the document leases it while its pages are extracted and {@link #releaseFonts(PDDocument)} returns it to the
+ * cache. The fonts that are not leased are kept in least recently used order up to the maximum number of fonts.
+ * Type 3 fonts are not shared, as they read their glyph procedures from the document.
+ */
+@Component
+public class FontCache implements MeterBinder {
+
+    private final int maxFonts;
+
+    private final LinkedHashMap<String, Deque<PDFont>> idleFonts = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleFontCount;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    @Autowired
+    FontCache(@Value("${prosper1099.font-cache.max-fonts:256}") int maxFonts) {
+        this.maxFonts = maxFonts;
+    }
+
+    /**
+     * Returns the resource cache for a new document, or null if fonts are not shared.
+     */
+    ResourceCache newResourceCache() {
+        return maxFonts > 0 ? new DocumentFontCache() : null;
+    }
+
+    /**
+     * Returns the fonts the document leased to the cache, so other documents can use them. The document leases
+     * them again when it looks them up later.
+     */
+    static void releaseFonts(PDDocument document) {
+        if (document.getResourceCache() instanceof DocumentFontCache documentFontCache) {
+            documentFontCache.release();
+        }
+    }
+
+    Map<String, Long> getStatistics() {
+
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        synchronized (this) {
+            statistics.put("fonts", (long) idleFontCount);
+        }
+
+        return statistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("prosper1099.font-cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("prosper1099.font-cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("prosper1099.font-cache.evictions", evictions, AtomicLong::get).register(registry);
+
+        Gauge.builder("prosper1099.font-cache.fonts", this, cache -> cache.getStatistics().get("fonts")).register(registry);
+    }
+
+    private synchronized PDFont lease(String digest) {
+
+        Deque<PDFont> fonts = idleFonts.get(digest);
+        if (fonts == null || fonts.isEmpty()) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        idleFontCount--;
+
+        return fonts.poll();
+    }
+
+    private synchronized void release(String digest, PDFont font) {
+
+        idleFonts.computeIfAbsent(digest, key -> new ArrayDeque<>()).push(font);
+        idleFontCount++;
+
+        Iterator<Deque<PDFont>> iterator = idleFonts.values().iterator();
+        while (idleFontCount > maxFonts && iterator.hasNext()) {
+            Deque<PDFont> fonts = iterator.next();
+
+            // Copies of the same font are evicted in the order they were released.
+            while (idleFontCount > maxFonts && !fonts.isEmpty()) {
+                fonts.pollLast();
+                idleFontCount--;
+                evictions.incrementAndGet();
+            }
+
+            if (fonts.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the hex encoded digest of the font, or null if it is not shared.
+     */
+    static String digest(COSObject font) throws IOException {
+
+        if (!(font.getObject() instanceof COSDictionary dictionary) || COSName.TYPE3.equals(dictionary.getCOSName(COSName.SUBTYPE))) {
+            return null;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        update(digest, dictionary, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, COSBase base, Set<COSBase> visited) throws IOException {
+
+        if (base instanceof COSObject object) {
+            base = object.getObject();
+        }
+
+        if (base instanceof COSDictionary || base instanceof COSArray) {
+            if (!visited.add(base)) {
+                digest.update((byte) 'R');
+                return;
+            }
+        }
+
+        if (base instanceof COSDictionary dictionary) {
+            digest.update((byte) (dictionary instanceof COSStream ? 'S' : 'D'));
+            updateInt(digest, dictionary.size());
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                update(digest, entry.getKey(), visited);
+                update(digest, entry.getValue(), visited);
+            }
+            if (dictionary instanceof COSStream stream) {
+                try (InputStream in = stream.createRawInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    for (int read; (read = in.read(buffer)) != -1; ) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        } else if (base instanceof COSArray array) {
+            digest.update((byte) 'A');
+            updateInt(digest, array.size());
+            for (COSBase element : array) {
+                update(digest, element, visited);
+            }
+        } else if (base instanceof COSName name) {
+            digest.update((byte) 'N');
+            updateBytes(digest, name.getName().getBytes(StandardCharsets.UTF_8));
+        } else if (base instanceof COSString string) {
+            digest.update((byte) 'T');
+            updateBytes(digest, string.getBytes());
+        } else if (base instanceof COSNumber number) {
+            digest.update((byte) '#');
+            updateBytes(digest, number.toString().getBytes(StandardCharsets.US_ASCII));
+        } else if (base instanceof COSBoolean bool) {
+            digest.update((byte) (bool.getValue() ? '1' : '0'));
+        } else {
+            digest.update((byte) '0');
+        }
+    }
+
+    private static void updateBytes(MessageDigest digest, byte[] bytes) {
+        updateInt(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateInt(MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+
+    /**
+     * The resource cache of a single document. Other resources are cached per document as by default.
+     */
+    private class DocumentFontCache extends DefaultResourceCache {
+
+        private final Map<COSObject, PDFont> fonts = new HashMap<>();
+        private final Map<COSObject, String> digests = new HashMap<>();
+
+
+        @Override
+        public PDFont getFont(COSObject indirect) throws IOException {
+
+            PDFont font = fonts.get(indirect);
+            if (font != null) {
+                return font;
+            }
+
+            if (!digests.containsKey(indirect)) {
+                digests.put(indirect, digest(indirect));
+            }
+
+            String digest = digests.get(indirect);
+            font = digest != null ? lease(digest) : null;
+            if (font != null) {
+                fonts.put(indirect, font);
+            }
+
+            return font;
+        }
+
+        @Override
+        public void put(COSObject indirect, PDFont font) {
+            fonts.put(indirect, font);
+        }
+
+        void release() {
+
+            Iterator<Map.Entry<COSObject, PDFont>> iterator = fonts.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<COSObject, PDFont> entry = iterator.next();
+                String digest = digests.get(entry.getKey());
+                if (digest != null) {
+                    FontCache.this.release(digest, entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.prosper1099;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Provides HTTP endpoints for converting documents in the background. The upload returns a job right away, which
+ * clients poll until the CSV is ready to download.
+ */
+@Controller
+public class JobController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final ConversionJobs conversionJobs;
+    private final String retryAfterSeconds;
+
+
+    @Autowired
+    JobController(ConversionJobs conversionJobs, @Value("${prosper1099.jobs.retry-after:30s}") Duration retryAfter) {
+        this.conversionJobs = conversionJobs;
+        this.retryAfterSeconds = String.valueOf(retryAfter.toSeconds());
+    }
+
+    /**
+     * Queues the conversion of the PDF. Responds with 429 Too Many Requests if the queue is full.
+     */
+    @RequestMapping(method = RequestMethod.POST, value = "/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ConversionJob> submitJob(@RequestParam("file") MultipartFile pdfFile) throws IOException {
+
+        ConversionJob job;
+        try {
+            job = conversionJobs.submit(pdfFile);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds).build();
+        }
+
+        return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getId())).body(job);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ConversionJob> getJob(@PathVariable("id") String id) {
+
+        ConversionJob job = conversionJobs.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Downloads the CSV of a job that succeeded. Responds with 409 Conflict if the job is still queued or running,
+     * or if it failed.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/jobs/{id}/csv", produces = "text/csv")
+    public ResponseEntity<Resource> getJobCsv(@PathVariable("id") String id) {
+
+        ConversionJob job = conversionJobs.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (job.getStatus() != ConversionJob.Status.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        return ResponseEntity.ok().contentType(TEXT_CSV).body(new FileSystemResource(job.getCsvFile()));
+    }
+}
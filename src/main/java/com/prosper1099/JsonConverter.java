@@ -0,0 +1,63 @@
+package com.prosper1099;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Converts spooled documents to a JSON array or to NDJSON, one transaction object per line. Like the CSVs of the
+ * {@link CsvConverter}, the output of documents that were converted before is returned from the
+ * {@link ConversionCache} without parsing.
+ */
+@Component
+public class JsonConverter {
+
+    private final DocumentConverter documentConverter;
+    private final ConversionCache conversionCache;
+    private final JsonFactory jsonFactory;
+
+
+    @Autowired
+    JsonConverter(DocumentConverter documentConverter, ConversionCache conversionCache, ObjectMapper objectMapper) {
+        this.documentConverter = documentConverter;
+        this.conversionCache = conversionCache;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Writes the JSON to the output stream while the document is being parsed. Each object is written with the
+     * streaming generator as soon as its transaction is parsed, without building a tree of the document.
+     *
+     * @param newlineDelimited whether to write NDJSON rather than a JSON array
+     */
+    void convert(DocumentLoader.SpooledDocument document, boolean newlineDelimited, OutputStream outputStream) throws IOException {
+
+        String cacheKey = conversionCache.isEnabled() ? document.getDigest() + (newlineDelimited ? ".ndjson" : ".json") : null;
+        byte[] json = conversionCache.get(cacheKey);
+        if (json != null) {
+            outputStream.write(json);
+            return;
+        }
+
+        ConversionCache.Recording recording = conversionCache.record(cacheKey, outputStream);
+        JsonGenerator generator = jsonFactory.createGenerator(recording, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        if (!newlineDelimited) {
+            generator.writeStartArray();
+        }
+        documentConverter.convert(document, new JsonTransactionHandler(generator, newlineDelimited));
+        if (!newlineDelimited) {
+            generator.writeEndArray();
+        }
+
+        generator.flush();
+        recording.commit();
+    }
+}
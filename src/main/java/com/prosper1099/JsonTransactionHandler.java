@@ -0,0 +1,106 @@
+package com.prosper1099;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+/**
+ * Writes each transaction as a JSON object as soon as it is parsed. The field names are the columns of the header
+ * in camel case, e.g. "salesProceeds" for "Sales Proceeds". Amounts are written as numbers and dates as ISO dates.
+ */
+class JsonTransactionHandler implements TransactionHandler {
+
+    private final JsonGenerator generator;
+    private final boolean newlineDelimited;
+    private final StringBuilder buffer = new StringBuilder();
+    private SerializableString[] fieldNames;
+
+
+    /**
+     * @param newlineDelimited whether each object is written on a line of its own, as in NDJSON, rather than as an
+     * element of an array the caller has started
+     */
+    JsonTransactionHandler(JsonGenerator generator, boolean newlineDelimited) {
+        this.generator = generator;
+        this.newlineDelimited = newlineDelimited;
+        if (newlineDelimited) {
+            generator.setRootValueSeparator(null);
+        }
+    }
+
+    @Override
+    public void start(String taxYear, TransactionParser transactionParser) {
+
+        String[] header = transactionParser.getHeader();
+
+        fieldNames = new SerializableString[header.length];
+        for (int i = 0; i < header.length; i++) {
+            fieldNames[i] = new SerializedString(toFieldName(header[i]));
+        }
+    }
+
+    /**
+     * Writes the fields in the order of the header.
+     */
+    @Override
+    public void transaction(Transaction transaction) {
+        try {
+            generator.writeStartObject();
+            generator.writeFieldName(fieldNames[0]);
+            generator.writeString(LocalDate.ofEpochDay(transaction.dateSold()).toString());
+            generator.writeFieldName(fieldNames[1]);
+            generator.writeString(LocalDate.ofEpochDay(transaction.dateAcquired()).toString());
+            generator.writeFieldName(fieldNames[2]);
+            generator.writeNumber(formatAmount(transaction.salesProceeds()));
+            generator.writeFieldName(fieldNames[3]);
+            generator.writeString(transaction.description());
+            generator.writeFieldName(fieldNames[4]);
+            generator.writeNumber(formatAmount(transaction.costBasis()));
+            generator.writeFieldName(fieldNames[5]);
+            if (transaction.reportingCategory() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(transaction.reportingCategory().name());
+            }
+            generator.writeEndObject();
+
+            if (newlineDelimited) {
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Turns a column of the header like "Date Sold" into a field name like "dateSold".
+     */
+    static String toFieldName(String column) {
+
+        StringBuilder fieldName = new StringBuilder(column.length());
+        boolean upperCase = false;
+
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                upperCase = fieldName.length() > 0;
+            } else if (upperCase) {
+                fieldName.append(Character.toUpperCase(c));
+                upperCase = false;
+            } else {
+                fieldName.append(fieldName.length() == 0 ? Character.toLowerCase(c) : c);
+            }
+        }
+
+        return fieldName.toString();
+    }
+
+    private String formatAmount(long cents) {
+        buffer.setLength(0);
+        return TransactionFormat.appendAmount(buffer, cents).toString();
+    }
+}
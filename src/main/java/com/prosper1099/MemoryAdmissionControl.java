@@ -0,0 +1,242 @@
+package com.prosper1099;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the heap used by concurrent conversions. Each conversion reserves its estimated heap cost before the
+ * document is loaded, and waits while the reservations of other conversions leave too little of the memory budget.
+ * <p>
+ * Even though documents are loaded from files, PDFBox parses all objects of the document onto the heap, which takes
+ * about 7KB per page of a Prosper statement, or 4 to 6 times the size of the file. Before the document is loaded, the
+ * cost is estimated from the file size. Once it is loaded, {@link Admission#reservePages(int)} replaces the estimate
+ * with the cost of its pages, which also covers the copies of the document loaded to extract page ranges in
+ * parallel, and waits if that is more than was reserved before extraction starts.
+ * <p>
+ * Waiting conversions are admitted in arrival order, except that smaller conversions may pass a larger one that
+ * doesn't fit yet. This keeps the latency of small documents low. Once a conversion has waited longer than the
+ * starvation threshold it can no longer be passed, so large documents eventually get their turn.
+ */
+@Component
+public class MemoryAdmissionControl implements MeterBinder {
+
+    private final long budget;
+    private final long baseCost;
+    private final double fileSizeFactor;
+    private final long pageCost;
+    private final long starvationThresholdNanos;
+    private final long timeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final List<Waiter> pageWaiters = new ArrayList<>();
+    private long reserved;
+    private int extracting;
+
+
+    @Autowired
+    MemoryAdmissionControl(@Value("${prosper1099.admission.memory-budget:0B}") DataSize memoryBudget,
+                           @Value("${prosper1099.admission.base-cost:16MB}") DataSize baseCost,
+                           @Value("${prosper1099.admission.file-size-factor:4.0}") double fileSizeFactor,
+                           @Value("${prosper1099.admission.page-cost:32KB}") DataSize pageCost,
+                           @Value("${prosper1099.admission.starvation-threshold:10s}") Duration starvationThreshold,
+                           @Value("${prosper1099.admission.timeout:5m}") Duration timeout) {
+        this.budget = memoryBudget.toBytes() > 0 ? memoryBudget.toBytes() : Runtime.getRuntime().maxMemory() / 2;
+        this.baseCost = baseCost.toBytes();
+        this.fileSizeFactor = fileSizeFactor;
+        this.pageCost = pageCost.toBytes();
+        this.starvationThresholdNanos = starvationThreshold.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Waits until the estimated cost of converting a document of the given size fits into the memory budget.
+     * Documents estimated to cost more than the whole budget are admitted once no other conversion is running.
+     *
+     * @throws AdmissionTimeoutException if the document isn't admitted within the timeout
+     */
+    Admission admit(long fileSize) throws InterruptedIOException {
+
+        long cost = Math.min(baseCost + (long) (fileSize * fileSizeFactor), budget);
+        Waiter waiter = new Waiter(cost, System.nanoTime());
+
+        lock.lock();
+        try {
+            waiters.add(waiter);
+
+            awaitAdmission(waiter, () -> canAdmit(waiter));
+
+            reserved += cost;
+            return new Admission(cost);
+        } finally {
+            waiters.remove(waiter);
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("prosper1099.admission.budget", this, MemoryAdmissionControl::getBudget).baseUnit("bytes").register(registry);
+        Gauge.builder("prosper1099.admission.reserved", this, MemoryAdmissionControl::getReserved).baseUnit("bytes").register(registry);
+        Gauge.builder("prosper1099.admission.waiting", this, MemoryAdmissionControl::getWaiting).register(registry);
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    long getReserved() {
+        lock.lock();
+        try {
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.size() + pageWaiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitAdmission(Waiter waiter, BooleanSupplier admitted) throws InterruptedIOException {
+
+        long deadline = waiter.since + timeoutNanos;
+        try {
+            while (!admitted.getAsBoolean()) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new AdmissionTimeoutException("Too many documents are being converted. Try again later.");
+                }
+                changed.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for admission.");
+        }
+    }
+
+    private boolean canAdmit(Waiter waiter) {
+
+        // Loaded documents waiting for their pages go first, as they already hold their document on the heap.
+        if (reserved + waiter.cost > budget || !pageWaiters.isEmpty()) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        for (Waiter other : waiters) {
+            if (other == waiter) {
+                return true;
+            }
+            if (now - other.since > starvationThresholdNanos) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Loaded documents whose pages don't fit are admitted in arrival order. The first of them is admitted over the
+     * budget once no document is being extracted, as otherwise documents waiting for their pages could wait for each
+     * other's reservations forever.
+     */
+    private boolean canReservePages(Waiter waiter) {
+        return pageWaiters.get(0) == waiter && (reserved + waiter.cost <= budget || extracting == 0);
+    }
+
+
+    private static class Waiter {
+
+        private final long cost;
+        private final long since;
+
+
+        Waiter(long cost, long since) {
+            this.cost = cost;
+            this.since = since;
+        }
+    }
+
+    /**
+     * The reservation of an admitted conversion, which is released when closed.
+     */
+    class Admission implements AutoCloseable {
+
+        private long cost;
+        private boolean extracting;
+
+
+        private Admission(long cost) {
+            this.cost = cost;
+        }
+
+        /**
+         * Replaces the cost estimated from the file size with the cost of the pages once the document is loaded and
+         * its number of pages is known. If that costs more than was reserved, waits until the difference fits into
+         * the budget, before any pages are extracted.
+         *
+         * @throws AdmissionTimeoutException if the pages aren't admitted within the timeout
+         */
+        void reservePages(int numberOfPages) throws InterruptedIOException {
+
+            long pagesCost = Math.min(baseCost + numberOfPages * pageCost, budget);
+
+            lock.lock();
+            try {
+                Waiter waiter = new Waiter(pagesCost - cost, System.nanoTime());
+                if (waiter.cost > 0) {
+                    pageWaiters.add(waiter);
+                    try {
+                        awaitAdmission(waiter, () -> canReservePages(waiter));
+                    } finally {
+                        pageWaiters.remove(waiter);
+                    }
+                }
+
+                reserved += waiter.cost;
+                cost = pagesCost;
+                extracting = true;
+                MemoryAdmissionControl.this.extracting++;
+            } finally {
+                changed.signalAll();
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                reserved -= cost;
+                cost = 0;
+                if (extracting) {
+                    MemoryAdmissionControl.this.extracting--;
+                    extracting = false;
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.prosper1099;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which pages of a document may contain 1099-B transactions before their text is extracted, so the
+ * 1099-INT/OID, summary and instruction pages of combined documents are skipped. The strings shown by the content
+ * stream of the page are decoded in the order they are drawn, without the layout and sorting done by the
+ * {@link org.apache.pdfbox.text.PDFTextStripper}, and checked by
+ * {@link TransactionParser#mayContainTransactions(String)}. Pages whose text can't be fully decoded this way, e.g.
+ * because it is drawn by form XObjects or in fonts without a Unicode mapping, are always extracted.
+ * <p>
+ * Page ranges extracted in parallel share the classifier of the document.
+ */
+final class PageClassifier {
+
+    private final TransactionParser transactionParser;
+    private final AtomicInteger skippedPages = new AtomicInteger();
+
+
+    PageClassifier(TransactionParser transactionParser) {
+        this.transactionParser = transactionParser;
+    }
+
+    /**
+     * Returns whether the page may contain transactions, and counts it as skipped otherwise.
+     */
+    boolean mayContainTransactions(PDPage page) throws IOException {
+
+        String pageText = readText(page);
+        if (pageText == null || transactionParser.mayContainTransactions(pageText)) {
+            return true;
+        }
+
+        skippedPages.incrementAndGet();
+        return false;
+    }
+
+    int getSkippedPages() {
+        return skippedPages.get();
+    }
+
+    /**
+     * Returns the text shown by the content stream of the page with all white space removed, or null if some of it
+     * can't be decoded.
+     */
+    static String readText(PDPage page) throws IOException {
+
+        PDResources resources = page.getResources();
+        if (resources == null) {
+            return null;
+        }
+
+        StringBuilder pageText = new StringBuilder();
+        List<COSBase> operands = new ArrayList<>();
+        PDFont font = null;
+        // The font is part of the graphics state, so q saves it and Q restores it.
+        List<PDFont> savedFonts = new ArrayList<>();
+
+        PDFStreamParser parser = new PDFStreamParser(page);
+        for (Object token = parser.parseNextToken(); token != null; token = parser.parseNextToken()) {
+
+            if (!(token instanceof Operator operator)) {
+                operands.add((COSBase) token);
+                continue;
+            }
+
+            switch (operator.getName()) {
+                case "q" -> savedFonts.add(font);
+                case "Q" -> {
+                    if (savedFonts.isEmpty()) {
+                        return null;
+                    }
+                    font = savedFonts.remove(savedFonts.size() - 1);
+                }
+                case "Tf" -> {
+                    font = !operands.isEmpty() && operands.get(0) instanceof COSName fontName ? resources.getFont(fontName) : null;
+                }
+                case "Tj", "'", "\"" -> {
+                    if (operands.isEmpty() || !(operands.get(operands.size() - 1) instanceof COSString string)
+                            || !appendText(font, string, pageText)) {
+                        return null;
+                    }
+                }
+                case "TJ" -> {
+                    if (operands.isEmpty() || !(operands.get(0) instanceof COSArray array)) {
+                        return null;
+                    }
+                    for (COSBase element : array) {
+                        if (element instanceof COSString string && !appendText(font, string, pageText)) {
+                            return null;
+                        }
+                    }
+                }
+                case "Do" -> {
+                    // Form XObjects may draw text of their own.
+                    if (operands.isEmpty() || !(operands.get(0) instanceof COSName name) || !resources.isImageXObject(name)) {
+                        return null;
+                    }
+                }
+                default -> {
+                }
+            }
+
+            operands.clear();
+        }
+
+        return pageText.toString();
+    }
+
+    private static boolean appendText(PDFont font, COSString string, StringBuilder pageText) throws IOException {
+
+        if (font == null) {
+            return false;
+        }
+
+        InputStream in = new ByteArrayInputStream(string.getBytes());
+        while (in.available() > 0) {
+            String unicode = font.toUnicode(font.readCode(in));
+            if (unicode == null) {
+                return false;
+            }
+
+            for (int i = 0; i < unicode.length(); i++) {
+                char c = unicode.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    pageText.append(c);
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package com.prosper1099;
+
+/**
+ * The check boxes of Form 8949 that say how a transaction is reported. Boxes A to C and G to I are reported in
+ * Part I for short-term transactions, the others in Part II for long-term transactions.
+ */
+public enum ReportingCategory {
+    A(Term.SHORT), B(Term.SHORT), C(Term.SHORT),
+    D(Term.LONG), E(Term.LONG), F(Term.LONG),
+    G(Term.SHORT), H(Term.SHORT), I(Term.SHORT),
+    J(Term.LONG), K(Term.LONG), L(Term.LONG);
+
+    /**
+     * The holding period of a transaction.
+     */
+    public enum Term {
+        SHORT, LONG
+    }
+
+    private final Term term;
+
+
+    ReportingCategory(Term term) {
+        this.term = term;
+    }
+
+    public Term getTerm() {
+        return term;
+    }
+
+    /**
+     * Returns the category of the check box letter.
+     */
+    public static ReportingCategory of(String checkBox) {
+        try {
+            return valueOf(checkBox);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unsupported Form 8949 check box '" + checkBox + "'");
+        }
+    }
+}
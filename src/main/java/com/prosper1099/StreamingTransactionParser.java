@@ -0,0 +1,79 @@
+package com.prosper1099;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming variant of the {@link TransactionParser}. The PDF text is pushed to the parser one line at a time
+ * as it is extracted, so the lines of the whole document never need to be held in memory.
+ * <p>
+ * Parsing is split into matching lines, which doesn't depend on the lines before them, and carrying the state of the
+ * parser from one matched line to the next. Chunks of lines can therefore be matched in parallel with
+ * {@link #matchLines(List)} and then parsed in document order with {@link LineParser#parseChunk(LineChunk)}, which
+ * yields the same transactions as parsing the lines one at a time.
+ */
+public interface StreamingTransactionParser extends TransactionParser {
+
+    /**
+     * Creates a parser for a single document. Each transaction is handed to the consumer as soon as its last
+     * line has been parsed.
+     */
+    LineParser newLineParser(Consumer<Transaction> transactionConsumer);
+
+    /**
+     * Matches a chunk of consecutive lines of a document. This may be called concurrently for different chunks.
+     */
+    LineChunk matchLines(List<String> lines);
+
+    /**
+     * Matches chunks of the lines in parallel and parses them in order.
+     */
+    @Override
+    default List<Transaction> parse1099BTransactions(List<String> lines) {
+
+        int chunkSize = 4096;
+        List<LineChunk> chunks = IntStream.range(0, (lines.size() + chunkSize - 1) / chunkSize)
+                .parallel()
+                .mapToObj(chunk -> matchLines(lines.subList(chunk * chunkSize, Math.min((chunk + 1) * chunkSize, lines.size()))))
+                .toList();
+
+        List<Transaction> transactions = new ArrayList<>();
+
+        LineParser lineParser = newLineParser(transactions::add);
+        chunks.forEach(lineParser::parseChunk);
+        lineParser.finish();
+
+        return transactions;
+    }
+
+    /**
+     * The lines of a chunk matched by {@link #matchLines(List)}, which only holds the lines the parser matched.
+     */
+    interface LineChunk {
+
+        /**
+         * Number of lines the chunk was matched from.
+         */
+        int lineCount();
+    }
+
+    /**
+     * Parses the lines of a single document in the order they appear in the PDF.
+     */
+    interface LineParser {
+
+        void parseLine(String line);
+
+        /**
+         * Parses the lines of a chunk matched by the same transaction parser, following the lines parsed before.
+         */
+        void parseChunk(LineChunk chunk);
+
+        /**
+         * Called after the last line of the document has been parsed.
+         */
+        void finish();
+    }
+}
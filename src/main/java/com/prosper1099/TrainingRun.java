@@ -0,0 +1,63 @@
+package com.prosper1099;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Starts the {@link ConverterApplication}, converts sample documents through its HTTP endpoints, then exits. This is
+ * run with -XX:ArchiveClassesAtExit by the cdsArchive task, so the class data sharing archive contains the classes of
+ * Tomcat, Spring MVC, PDFBox and the parsers that are otherwise only loaded by the first request. It is a main class
+ * of its own rather than a bean, so no configuration of the application itself can make it exit. It runs from the
+ * same class path as the application, as the archive requires.
+ * <p>
+ * Usage: {@code TrainingRun [--option=value]... <document>...}. The options are passed on to the application.
+ */
+public class TrainingRun {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrainingRun.class);
+
+
+    public static void main(String[] args) {
+
+        List<String> documents = new DefaultApplicationArguments(args).getNonOptionArgs();
+        ConfigurableApplicationContext context = SpringApplication.run(ConverterApplication.class, args);
+
+        RestTemplate restTemplate = new RestTemplate();
+        String url = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port");
+
+        for (String document : documents) {
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            body.add("file", new FileSystemResource(document));
+
+            for (MediaType mediaType : List.of(new MediaType("text", "csv"), MediaType.APPLICATION_NDJSON)) {
+                HttpHeaders headers = multipartHeaders();
+                headers.setAccept(List.of(mediaType));
+
+                byte[] response = restTemplate.postForObject(url + "/convertPdfToCsv", new HttpEntity<>(body, headers), byte[].class);
+                LOGGER.info("Converted {} to {} bytes of {}", document, response == null ? 0 : response.length, mediaType);
+            }
+
+            restTemplate.postForObject(url + "/summarizePdf", new HttpEntity<>(body, multipartHeaders()), String.class);
+        }
+
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private static HttpHeaders multipartHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return headers;
+    }
+}
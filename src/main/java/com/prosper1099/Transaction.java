@@ -0,0 +1,16 @@
+package com.prosper1099;
+
+/**
+ * A 1099-B transaction of a single note. Dates are stored as epoch days and amounts as cents, so transactions take
+ * little memory and can be used in calculations without parsing strings again.
+ *
+ * @param dateSold the date sold as days since 1970-01-01
+ * @param dateAcquired the date acquired as days since 1970-01-01
+ * @param salesProceeds the sales proceeds in cents
+ * @param description the description of the note
+ * @param costBasis the cost basis in cents
+ * @param reportingCategory the Form 8949 check box, or null if the document doesn't state it
+ */
+public record Transaction(int dateSold, int dateAcquired, long salesProceeds, String description, long costBasis,
+                          ReportingCategory reportingCategory) {
+}
@@ -0,0 +1,46 @@
+package com.prosper1099;
+
+import java.time.LocalDate;
+
+/**
+ * Formats the dates and amounts of {@link Transaction}s the way they appear in the PDF, e.g. "01/31/2024" and
+ * "-12.34", appending to a buffer that can be reused between values.
+ */
+final class TransactionFormat {
+
+    private TransactionFormat() {
+    }
+
+    /**
+     * Appends the epoch day as MM/dd/yyyy.
+     */
+    static StringBuilder appendDate(StringBuilder buffer, int epochDay) {
+
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        appendTwoDigits(buffer, date.getMonthValue());
+        buffer.append('/');
+        appendTwoDigits(buffer, date.getDayOfMonth());
+        buffer.append('/');
+
+        return buffer.append(date.getYear());
+    }
+
+    /**
+     * Appends the cents as dollars with two decimals and a leading minus sign if negative.
+     */
+    static StringBuilder appendAmount(StringBuilder buffer, long cents) {
+
+        if (cents < 0) {
+            buffer.append('-');
+        }
+
+        long absoluteCents = Math.abs(cents);
+        buffer.append(absoluteCents / 100).append('.');
+
+        return appendTwoDigits(buffer, (int) (absoluteCents % 100));
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder buffer, int value) {
+        return buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
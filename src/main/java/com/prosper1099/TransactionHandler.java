@@ -0,0 +1,14 @@
+package com.prosper1099;
+
+/**
+ * Receives the 1099-B transactions of a document as they are parsed.
+ */
+public interface TransactionHandler {
+
+    /**
+     * Called once the tax year of the document is known, before the first transaction.
+     */
+    void start(String taxYear, TransactionParser transactionParser);
+
+    void transaction(Transaction transaction);
+}
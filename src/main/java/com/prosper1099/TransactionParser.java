@@ -9,5 +9,15 @@ public interface TransactionParser {
 
     String[] getHeader();
 
-    List<List<String>> parse1099BTransactions(List<String> lines);
+    List<Transaction> parse1099BTransactions(List<String> lines);
+
+    /**
+     * Returns whether a page with the given text may contain lines the parser needs. The text is checked before the
+     * text of the page is extracted, and is the text drawn on the page in content stream order with all white space
+     * removed. Pages for which this returns false are skipped, so it must return true unless the page can't contain
+     * any line the parser would match.
+     */
+    default boolean mayContainTransactions(String pageText) {
+        return true;
+    }
 }
@@ -0,0 +1,104 @@
+package com.prosper1099;
+
+import com.prosper1099.ReportingCategory.Term;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Adds up the 1099-B transactions of a document per Form 8949 reporting category and per term as they are parsed,
+ * so the totals are known without keeping or writing the transactions. Amounts are summed in cents.
+ */
+public class TransactionSummary implements TransactionHandler {
+
+    private final Totals total = new Totals();
+    private final Map<ReportingCategory, Totals> reportingCategories = new EnumMap<>(ReportingCategory.class);
+    private final Map<Term, Totals> terms = new EnumMap<>(Term.class);
+    private String taxYear;
+
+
+    @Override
+    public void start(String taxYear, TransactionParser transactionParser) {
+        this.taxYear = taxYear;
+    }
+
+    @Override
+    public void transaction(Transaction transaction) {
+
+        total.add(transaction);
+
+        ReportingCategory reportingCategory = transaction.reportingCategory();
+        if (reportingCategory != null) {
+            reportingCategories.computeIfAbsent(reportingCategory, category -> new Totals()).add(transaction);
+        }
+
+        terms.computeIfAbsent(getTerm(transaction), term -> new Totals()).add(transaction);
+    }
+
+    public String getTaxYear() {
+        return taxYear;
+    }
+
+    public Totals getTotal() {
+        return total;
+    }
+
+    public Map<ReportingCategory, Totals> getReportingCategories() {
+        return reportingCategories;
+    }
+
+    public Map<Term, Totals> getTerms() {
+        return terms;
+    }
+
+    /**
+     * The term of the reporting category, or of the holding period if the document doesn't state the category.
+     * Assets held for more than one year are long-term.
+     */
+    private static Term getTerm(Transaction transaction) {
+
+        if (transaction.reportingCategory() != null) {
+            return transaction.reportingCategory().getTerm();
+        }
+
+        LocalDate dateSold = LocalDate.ofEpochDay(transaction.dateSold());
+        LocalDate dateAcquired = LocalDate.ofEpochDay(transaction.dateAcquired());
+
+        return dateSold.isAfter(dateAcquired.plusYears(1)) ? Term.LONG : Term.SHORT;
+    }
+
+    /**
+     * The number of transactions and the sums of their amounts. Amounts are returned in dollars with two decimals.
+     */
+    public static class Totals {
+
+        private int transactions;
+        private long salesProceeds;
+        private long costBasis;
+
+
+        void add(Transaction transaction) {
+            transactions++;
+            salesProceeds += transaction.salesProceeds();
+            costBasis += transaction.costBasis();
+        }
+
+        public int getTransactions() {
+            return transactions;
+        }
+
+        public BigDecimal getSalesProceeds() {
+            return BigDecimal.valueOf(salesProceeds, 2);
+        }
+
+        public BigDecimal getCostBasis() {
+            return BigDecimal.valueOf(costBasis, 2);
+        }
+
+        public BigDecimal getGainOrLoss() {
+            return BigDecimal.valueOf(salesProceeds - costBasis, 2);
+        }
+    }
+}
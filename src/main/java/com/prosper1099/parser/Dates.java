@@ -0,0 +1,29 @@
+package com.prosper1099.parser;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Parses dates in the MM/dd/yyyy format of the 1099-B forms into epoch days.
+ */
+final class Dates {
+
+    private Dates() {
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01. The date must have already been matched by \d\d/\d\d/\d\d\d\d.
+     */
+    static int parseEpochDay(String date) {
+
+        int month = (date.charAt(0) - '0') * 10 + date.charAt(1) - '0';
+        int day = (date.charAt(3) - '0') * 10 + date.charAt(4) - '0';
+        int year = Integer.parseInt(date, 6, 10, 10);
+
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            throw new IllegalStateException("Invalid date '" + date + "'", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.prosper1099.parser;
+
+/**
+ * Parses dollar values such as "$12.34" and "($12.34)" into cents without regular expressions.
+ */
+final class DollarValues {
+
+    private DollarValues() {
+    }
+
+    /**
+     * Returns the dollar value in cents. Parentheses denote negative values, e.g. "($12.34)" is -1234.
+     */
+    static long parseCents(String dollarValue) {
+
+        if (dollarValue.startsWith("$")) {
+            return parseAmount(dollarValue, 1, dollarValue.length());
+        }
+
+        if (dollarValue.startsWith("($") && dollarValue.endsWith(")")) {
+            return -parseAmount(dollarValue, 2, dollarValue.length() - 1);
+        }
+
+        throw new IllegalStateException("Expected dollar value '" + dollarValue + "' to match pattern '\\$(.*)' or '\\(\\$(.*)\\)'");
+    }
+
+    /**
+     * Parses amounts like "1,234.5" with optional thousands separators and at most two decimals.
+     */
+    private static long parseAmount(String dollarValue, int start, int end) {
+
+        long cents = 0;
+        int digits = 0;
+        int decimals = -1;
+
+        for (int i = start; i < end; i++) {
+            char c = dollarValue.charAt(i);
+            if (c >= '0' && c <= '9' && decimals < 2) {
+                cents = cents * 10 + (c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c != ',' || decimals >= 0) {
+                throw new IllegalStateException("Unable to parse dollar value '" + dollarValue + "'");
+            }
+        }
+
+        if (digits == 0) {
+            throw new IllegalStateException("Unable to parse dollar value '" + dollarValue + "'");
+        }
+
+        for (int i = Math.max(decimals, 0); i < 2; i++) {
+            cents *= 10;
+        }
+
+        return cents;
+    }
+}
@@ -0,0 +1,49 @@
+package com.prosper1099.parser;
+
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A regular expression for a whole line, guarded by a cheap literal check. Most lines of a 1099 are boilerplate,
+ * so the literal check rejects them before the regular expression runs. Matchers are reused per thread.
+ */
+final class LinePattern {
+
+    private final Pattern pattern;
+    private final Predicate<String> prefilter;
+    private final ThreadLocal<Matcher> matchers;
+
+
+    /**
+     * @param prefilter must return true for every line the regular expression matches
+     */
+    LinePattern(String regex, Predicate<String> prefilter) {
+        this.pattern = Pattern.compile(regex);
+        this.prefilter = prefilter;
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    /**
+     * Returns the matcher if the whole line matches, otherwise null. The matcher is reused by the next call on the
+     * same thread, so its groups must be read before then.
+     */
+    Matcher match(String line) {
+
+        if (!prefilter.test(line)) {
+            return null;
+        }
+
+        Matcher matcher = matchers.get().reset(line);
+
+        return matcher.matches() ? matcher : null;
+    }
+
+    String pattern() {
+        return pattern.pattern();
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,18 +1,17 @@
 
 package com.prosper1099.parser;
 
-import com.prosper1099.TransactionParser;
+import com.prosper1099.ReportingCategory;
+import com.prosper1099.StreamingTransactionParser;
+import com.prosper1099.Transaction;
 import com.prosper1099.TransactionParsers;
 import jakarta.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,18 +21,19 @@ import org.springframework.stereotype.Component;
  * Responsible for parsing the 1099-B transactions from the PDF text.
  */
 @Component
-public class TransactionParser2017To2023 implements TransactionParser {
+public class TransactionParser2017To2023 implements StreamingTransactionParser {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionParser2017To2023.class);
 
     private static final String DESCRIPTION_PREFIX = "Prosper Note ";
 
-    private static final Pattern BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN =
-            Pattern.compile("(\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\(?\\$\\d*\\.\\d*\\)?) (.*[A-Z]+).*");
-    private static final Pattern POSITIVE_DOLLAR_VALUE_PATTERN = Pattern.compile("\\$(.*)");
-    private static final Pattern NEGATIVE_DOLLAR_VALUE_PATTERN = Pattern.compile("\\(\\$(.*)\\)");
-    private static final Pattern BOX_1E_COST_BASIS_PATTERN = Pattern.compile(".*Box 1e\\. (\\(?\\$.*\\)?)");
-    private static final Pattern REPORTING_CATEGORY_PATTERN = Pattern.compile("Applicable check\\s?box on Form 8949 ([A-Z])");
+    private static final LinePattern BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN =
+            new LinePattern("(\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\(?\\$[\\d,]*\\.\\d*\\)?) (.*[A-Z]+).*",
+                    line -> line.length() > 2 && LinePattern.isDigit(line.charAt(0)) && LinePattern.isDigit(line.charAt(1)) && line.charAt(2) == '/');
+    private static final LinePattern BOX_1E_COST_BASIS_PATTERN = new LinePattern(".*Box 1e\\. (\\(?\\$.*\\)?)",
+            line -> line.contains("Box 1e. "));
+    private static final LinePattern REPORTING_CATEGORY_PATTERN = new LinePattern("Applicable check\\s?box on Form 8949 ([A-Z])",
+            line -> line.startsWith("Applicable check"));
 
     private final TransactionParsers transactionParsers;
 
@@ -59,116 +59,210 @@ public class TransactionParser2017To2023 implements TransactionParser {
     }
 
     @Override
-    public List<List<String>> parse1099BTransactions(List<String> lines) {
-
-        Iterator<String> iterator = lines.iterator();
-
-        List<List<String>> transactions = new ArrayList<>();
-
-        while (iterator.hasNext()) {
+    public LineParser newLineParser(Consumer<Transaction> transactionConsumer) {
+        return new LineParser2017To2023(transactionConsumer);
+    }
 
-            MatchResult dateSoldDateAcquiredProceedsDescriptionMatchResult =
-                    getNextMatch(iterator, false, BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN, BOX_1E_COST_BASIS_PATTERN,
-                            REPORTING_CATEGORY_PATTERN);
+    /**
+     * Transaction lines contain dates and an amount, cost basis lines "Box 1e." and an amount, and reporting
+     * category lines "Applicable check box".
+     */
+    @Override
+    public boolean mayContainTransactions(String pageText) {
+        return pageText.contains("Applicable")
+                || pageText.indexOf('$') >= 0 && (pageText.indexOf('/') >= 0 || pageText.contains("Box1e."));
+    }
 
-            if (dateSoldDateAcquiredProceedsDescriptionMatchResult != null) {
+    long parseCostBasis(MatchResult matchResult) {
 
-                String dateSold = dateSoldDateAcquiredProceedsDescriptionMatchResult.group(1);
-                LOGGER.debug("dateSold: {}", dateSold);
+        long costBasis = DollarValues.parseCents(matchResult.group(1));
+        LOGGER.debug("costBasis: {}", costBasis);
 
-                String dateAcquired = dateSoldDateAcquiredProceedsDescriptionMatchResult.group(2);
-                LOGGER.debug("dateAcquired: {}", dateAcquired);
+        return costBasis;
+    }
 
-                String salesProceeds = parseDollarValue(dateSoldDateAcquiredProceedsDescriptionMatchResult.group(3));
-                LOGGER.debug("salesProceeds: {}", salesProceeds);
+    ReportingCategory parseReportingCategory(MatchResult matchResult) {
 
-                String description = DESCRIPTION_PREFIX + dateSoldDateAcquiredProceedsDescriptionMatchResult.group(4);
-                LOGGER.debug("description: {}", description);
+        ReportingCategory reportingCategory = ReportingCategory.of(matchResult.group(1));
+        LOGGER.debug("reportingCategory: {}", reportingCategory);
 
-                String costBasis = parseCostBasis(Objects.requireNonNull(getNextMatch(iterator, true, BOX_1E_COST_BASIS_PATTERN,
-                        BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN, REPORTING_CATEGORY_PATTERN)));
+        return reportingCategory;
+    }
 
-                String reportingCategory = parseReportingCategory(Objects.requireNonNull(getNextMatch(iterator, true,  REPORTING_CATEGORY_PATTERN,
-                        BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN, BOX_1E_COST_BASIS_PATTERN)));
+    @Override
+    public LineChunk matchLines(List<String> lines) {
 
-                List<String> transaction = new ArrayList<>();
-                transaction.add(dateSold);
-                transaction.add(dateAcquired);
-                transaction.add(salesProceeds);
-                transaction.add(description);
-                transaction.add(costBasis);
-                transaction.add(reportingCategory);
-                transactions.add(transaction);
+        List<MatchedLine> matchedLines = new ArrayList<>();
+        for (String line : lines) {
+            MatchedLine matchedLine = matchLine(line);
+            if (matchedLine != null) {
+                matchedLines.add(matchedLine);
             }
         }
 
-        return transactions;
+        return new MatchedChunk(matchedLines, lines.size());
     }
 
-    private String parseDollarValue(String dollarValue) {
+    /**
+     * Matches the line against all three patterns, as which one is expected depends on the lines before it. Returns
+     * null if it matches none of them.
+     */
+    private MatchedLine matchLine(String line) {
+
+        MatchedLine matchedLine = null;
 
-        Matcher positiveDollarValueMatcher = POSITIVE_DOLLAR_VALUE_PATTERN.matcher(dollarValue);
-        Matcher negativeDollarValueMatcher = NEGATIVE_DOLLAR_VALUE_PATTERN.matcher(dollarValue);
+        Matcher dateSoldDateAcquiredProceedsDescriptionMatchResult = BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN.match(line);
+        if (dateSoldDateAcquiredProceedsDescriptionMatchResult != null) {
+            matchedLine = new MatchedLine(line);
+            matchedLine.box1abcd = true;
 
-        if (positiveDollarValueMatcher.matches()) {
-            return positiveDollarValueMatcher.group(1);
+            matchedLine.dateSold = Dates.parseEpochDay(dateSoldDateAcquiredProceedsDescriptionMatchResult.group(1));
+            LOGGER.debug("dateSold: {}", matchedLine.dateSold);
+
+            matchedLine.dateAcquired = Dates.parseEpochDay(dateSoldDateAcquiredProceedsDescriptionMatchResult.group(2));
+            LOGGER.debug("dateAcquired: {}", matchedLine.dateAcquired);
+
+            matchedLine.salesProceeds = DollarValues.parseCents(dateSoldDateAcquiredProceedsDescriptionMatchResult.group(3));
+            LOGGER.debug("salesProceeds: {}", matchedLine.salesProceeds);
+
+            matchedLine.description = DESCRIPTION_PREFIX + dateSoldDateAcquiredProceedsDescriptionMatchResult.group(4);
+            LOGGER.debug("description: {}", matchedLine.description);
         }
 
-        if (negativeDollarValueMatcher.matches()) {
-            return '-' + negativeDollarValueMatcher.group(1);
+        Matcher costBasisMatchResult = BOX_1E_COST_BASIS_PATTERN.match(line);
+        if (costBasisMatchResult != null) {
+            matchedLine = matchedLine != null ? matchedLine : new MatchedLine(line);
+            matchedLine.box1e = true;
+            matchedLine.costBasis = parseCostBasis(costBasisMatchResult);
         }
 
-        throw new IllegalStateException("Expected dollar value '" + dollarValue + "' to match pattern '"
-                + POSITIVE_DOLLAR_VALUE_PATTERN.pattern() + "' or '" + NEGATIVE_DOLLAR_VALUE_PATTERN.pattern() + "'");
-    }
+        Matcher reportingCategoryMatchResult = REPORTING_CATEGORY_PATTERN.match(line);
+        if (reportingCategoryMatchResult != null) {
+            matchedLine = matchedLine != null ? matchedLine : new MatchedLine(line);
+            matchedLine.reportingCategory = parseReportingCategory(reportingCategoryMatchResult);
+        }
 
-    String parseCostBasis(MatchResult matchResult) {
+        LOGGER.debug(matchedLine != null ? "Parsing: {}" : "Ignoring: {}", line);
 
-        String costBasis = parseDollarValue(matchResult.group(1));
-        LOGGER.debug("costBasis: {}", costBasis);
+        return matchedLine;
+    }
 
-        return costBasis;
+    /**
+     * Throws if the line matches any of the patterns that are not expected.
+     */
+    private static void checkNotExpected(MatchedLine matchedLine, boolean notExpected, LinePattern expectedPattern) {
+        if (notExpected) {
+            throw new IllegalStateException("Found line '" + matchedLine.line + "' without a preceding line matching " + Arrays.toString(new String[] {expectedPattern.pattern()}));
+        }
     }
 
-    String parseReportingCategory(MatchResult matchResult) {
 
-        String reportingCategory = matchResult.group(1);
-        LOGGER.debug("reportingCategory: {}", reportingCategory);
+    /**
+     * A line matching one or more of the patterns, with the values of each pattern it matches.
+     */
+    private static final class MatchedLine {
 
-        return reportingCategory;
+        private final String line;
+        private boolean box1abcd;
+        private boolean box1e;
+        private int dateSold;
+        private int dateAcquired;
+        private long salesProceeds;
+        private String description;
+        private long costBasis;
+        private ReportingCategory reportingCategory;
+
+
+        MatchedLine(String line) {
+            this.line = line;
+        }
     }
 
-    private MatchResult getNextMatch(Iterator<String> iterator, boolean exceptionIfNotFound, Pattern patternToMatch, Pattern... patternsNotExpected) {
-        return getNextMatch(iterator, exceptionIfNotFound, Collections.singletonList(patternToMatch), patternsNotExpected);
+    private record MatchedChunk(List<MatchedLine> matchedLines, int lineCount) implements LineChunk {
     }
 
-    private MatchResult getNextMatch(Iterator<String> iterator, boolean exceptionIfNotFound, List<Pattern> patternsToMatch, Pattern... patternsNotExpected) {
-        String nextLine;
+    /**
+     * Parses the three lines of each transaction: Box 1a-1d, then Box 1e, then the Form 8949 check box. Lines
+     * that don't match the next expected line are ignored. A transaction may start in one chunk and end in a later
+     * one.
+     */
+    private class LineParser2017To2023 implements LineParser {
 
-        while (iterator.hasNext()) {
-            nextLine = iterator.next();
+        private final Consumer<Transaction> transactionConsumer;
 
-            for (Pattern patternToMatch : patternsToMatch) {
-                Matcher matcher = patternToMatch.matcher(nextLine);
-                if (matcher.matches()) {
-                    LOGGER.debug("Parsing: {}", nextLine);
-                    return matcher.toMatchResult();
-                }
-            }
+        private LinePattern expectedPattern = BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN;
+        private int dateSold;
+        private int dateAcquired;
+        private long salesProceeds;
+        private String description;
+        private long costBasis;
 
-            for (Pattern patternNotExpected : patternsNotExpected) {
-                if (patternNotExpected.matcher(nextLine).matches()) {
-                    throw new IllegalStateException("Found line '" + nextLine + "' without a preceding line matching " + Arrays.toString(patternsToMatch.stream().map(Pattern::pattern).toArray()));
-                }
+
+        LineParser2017To2023(Consumer<Transaction> transactionConsumer) {
+            this.transactionConsumer = transactionConsumer;
+        }
+
+        @Override
+        public void parseLine(String line) {
+
+            MatchedLine matchedLine = matchLine(line);
+
+            if (matchedLine != null) {
+                parseMatchedLine(matchedLine);
             }
+        }
 
-            LOGGER.debug("Ignoring: {}", nextLine);
+        @Override
+        public void parseChunk(LineChunk chunk) {
+            for (MatchedLine matchedLine : ((MatchedChunk) chunk).matchedLines()) {
+                parseMatchedLine(matchedLine);
+            }
         }
 
-        if (exceptionIfNotFound) {
-            throw new IllegalStateException("Reached end of file but expected to find line matching " + Arrays.toString(patternsToMatch.stream().map(Pattern::pattern).toArray()));
+        private void parseMatchedLine(MatchedLine matchedLine) {
+
+            if (expectedPattern == BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN) {
+
+                if (matchedLine.box1abcd) {
+                    dateSold = matchedLine.dateSold;
+                    dateAcquired = matchedLine.dateAcquired;
+                    salesProceeds = matchedLine.salesProceeds;
+                    description = matchedLine.description;
+
+                    expectedPattern = BOX_1E_COST_BASIS_PATTERN;
+                } else {
+                    checkNotExpected(matchedLine, matchedLine.box1e || matchedLine.reportingCategory != null, expectedPattern);
+                }
+
+            } else if (expectedPattern == BOX_1E_COST_BASIS_PATTERN) {
+
+                if (matchedLine.box1e) {
+                    costBasis = matchedLine.costBasis;
+
+                    expectedPattern = REPORTING_CATEGORY_PATTERN;
+                } else {
+                    checkNotExpected(matchedLine, matchedLine.box1abcd || matchedLine.reportingCategory != null, expectedPattern);
+                }
+
+            } else {
+
+                if (matchedLine.reportingCategory != null) {
+                    transactionConsumer.accept(new Transaction(dateSold, dateAcquired, salesProceeds, description, costBasis,
+                            matchedLine.reportingCategory));
+
+                    description = null;
+                    expectedPattern = BOX_1ABCD_DATE_SOLD_DATE_ACQUIRED_PROCEEDS_DESCRIPTION_PATTERN;
+                } else {
+                    checkNotExpected(matchedLine, matchedLine.box1abcd || matchedLine.box1e, expectedPattern);
+                }
+            }
         }
 
-        return null;
+        @Override
+        public void finish() {
+            if (description != null) {
+                throw new IllegalStateException("Reached end of file but expected to find line matching " + Arrays.toString(new String[] {expectedPattern.pattern()}));
+            }
+        }
     }
 }
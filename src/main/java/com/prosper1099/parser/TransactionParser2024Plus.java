@@ -1,7 +1,9 @@
 
 package com.prosper1099.parser;
 
-import com.prosper1099.TransactionParser;
+import com.prosper1099.ReportingCategory;
+import com.prosper1099.StreamingTransactionParser;
+import com.prosper1099.Transaction;
 import com.prosper1099.TransactionParsers;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
@@ -9,29 +11,31 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
-import java.util.regex.MatchResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Responsible for parsing the 1099-B transactions from the PDF text.
  */
 @Component
-public class TransactionParser2024Plus implements TransactionParser {
+public class TransactionParser2024Plus implements StreamingTransactionParser {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionParser2024Plus.class);
 
     private static final String DESCRIPTION_PREFIX = "Prosper Note ";
 
-    private static final Pattern POSITIVE_DOLLAR_VALUE_PATTERN = Pattern.compile("\\$(.*)");
-    private static final Pattern NEGATIVE_DOLLAR_VALUE_PATTERN = Pattern.compile("\\(\\$(.*)\\)");
-    private static final Pattern REPORTING_CATEGORY_PATTERN = Pattern.compile("Covered \\w*-Term Gains or Losses on Net Proceeds Report on Form 8949, Part II? with Box ([A-Z]) checked\\s*");
-    private static final Pattern TRANSACTION_PATTERN = Pattern.compile(
-            "(\\d*-\\d* \\w*) (\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?).*"
+    private static final LinePattern REPORTING_CATEGORY_PATTERN = new LinePattern(
+            "Covered \\w*-Term Gains or Losses on Net Proceeds Report on Form 8949, Part II? with Box ([A-Z]) checked\\s*",
+            line -> line.startsWith("Covered "));
+    private static final LinePattern TRANSACTION_PATTERN = new LinePattern(
+            "(\\d*-\\d* \\w*) (\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\d\\d/\\d\\d/\\d\\d\\d\\d) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?) (\\(?\\$.*\\)?).*",
+            line -> !line.isEmpty() && (LinePattern.isDigit(line.charAt(0)) || line.charAt(0) == '-') && line.indexOf('$') > 0
     );
 
-    private static final List<Pattern> PATTERNS = Arrays.asList(REPORTING_CATEGORY_PATTERN, TRANSACTION_PATTERN);
+    private static final List<LinePattern> PATTERNS = Arrays.asList(REPORTING_CATEGORY_PATTERN, TRANSACTION_PATTERN);
 
     private final TransactionParsers transactionParsers;
 
@@ -71,89 +75,139 @@ public class TransactionParser2024Plus implements TransactionParser {
     }
 
     @Override
-    public List<List<String>> parse1099BTransactions(List<String> lines) {
+    public LineParser newLineParser(Consumer<Transaction> transactionConsumer) {
+        return new LineParser2024Plus(transactionConsumer);
+    }
+
+    /**
+     * Transaction lines contain dates and amounts, and reporting category lines start with "Covered".
+     */
+    @Override
+    public boolean mayContainTransactions(String pageText) {
+        return pageText.contains("Covered") || pageText.indexOf('$') >= 0 && pageText.indexOf('/') >= 0;
+    }
+
+    @Override
+    public LineChunk matchLines(List<String> lines) {
+
+        List<MatchedLine> matchedLines = new ArrayList<>();
+        for (String line : lines) {
+            MatchedLine matchedLine = matchLine(line);
+            if (matchedLine != null) {
+                matchedLines.add(matchedLine);
+            }
+        }
+
+        return new MatchedChunk(matchedLines, lines.size());
+    }
 
-        Iterator<String> iterator = lines.iterator();
+    /**
+     * Returns the section header or transaction on the line, or null if it has neither.
+     */
+    private MatchedLine matchLine(String line) {
 
-        List<List<String>> transactions = new ArrayList<>();
+        Matcher matchResult = getMatch(line, PATTERNS);
 
-        String reportingCategory = null;
+        if (matchResult == null) {
+            return null;
+        }
 
-        while (iterator.hasNext()) {
+        if (matchResult.groupCount() == 1) {
+            ReportingCategory reportingCategory = ReportingCategory.of(matchResult.group(1));
+            LOGGER.debug("reportingCategory: {}", reportingCategory);
 
-            MatchResult matchResult = getNextMatch(iterator, PATTERNS);
+            return new MatchedLine(reportingCategory, 0, 0, 0, null, 0);
+        }
 
-            if (matchResult != null) {
+        String description = DESCRIPTION_PREFIX + matchResult.group(1);
+        LOGGER.debug("description: {}", description);
 
-                if (matchResult.groupCount() == 1) {
-                    reportingCategory = matchResult.group(1);
-                    LOGGER.debug("reportingCategory: {}", reportingCategory);
-                } else {
+        int dateAcquired = Dates.parseEpochDay(matchResult.group(2));
+        LOGGER.debug("dateAcquired: {}", dateAcquired);
 
-                    String description = DESCRIPTION_PREFIX + matchResult.group(1);
-                    LOGGER.debug("description: {}", description);
+        int dateSold = Dates.parseEpochDay(matchResult.group(3));
+        LOGGER.debug("dateSold: {}", dateSold);
 
-                    String dateAcquired = matchResult.group(2);
-                    LOGGER.debug("dateAcquired: {}", dateAcquired);
+        long salesProceeds = DollarValues.parseCents(matchResult.group(4));
+        LOGGER.debug("salesProceeds: {}", salesProceeds);
 
-                    String dateSold = matchResult.group(3);
-                    LOGGER.debug("dateSold: {}", dateSold);
+        long costBasis = DollarValues.parseCents(matchResult.group(5));
+        LOGGER.debug("costBasis: {}", costBasis);
 
-                    String salesProceeds = parseDollarValue(matchResult.group(4));
-                    LOGGER.debug("salesProceeds: {}", salesProceeds);
+        return new MatchedLine(null, dateSold, dateAcquired, salesProceeds, description, costBasis);
+    }
 
-                    String costBasis = parseDollarValue(matchResult.group(5));
-                    LOGGER.debug("costBasis: {}", costBasis);
+    private Matcher getMatch(String line, List<LinePattern> patternsToMatch) {
 
-                    List<String> transaction = new ArrayList<>();
-                    transaction.add(dateSold);
-                    transaction.add(dateAcquired);
-                    transaction.add(salesProceeds);
-                    transaction.add(description);
-                    transaction.add(costBasis);
-                    transaction.add(reportingCategory);
-                    transactions.add(transaction);
-                }
+        for (LinePattern patternToMatch : patternsToMatch) {
+            Matcher matcher = patternToMatch.match(line);
+            if (matcher != null) {
+                LOGGER.debug("Parsing: {}", line);
+                return matcher;
             }
         }
 
-        return transactions;
+        LOGGER.debug("Ignoring: {}", line);
+
+        return null;
     }
 
-    private String parseDollarValue(String dollarValue) {
 
-        Matcher positiveDollarValueMatcher = POSITIVE_DOLLAR_VALUE_PATTERN.matcher(dollarValue);
-        Matcher negativeDollarValueMatcher = NEGATIVE_DOLLAR_VALUE_PATTERN.matcher(dollarValue);
+    /**
+     * A section header with the reporting category, or a transaction without it.
+     */
+    private record MatchedLine(ReportingCategory reportingCategory, int dateSold, int dateAcquired, long salesProceeds,
+                               String description, long costBasis) {
+    }
 
-        if (positiveDollarValueMatcher.matches()) {
-            return positiveDollarValueMatcher.group(1);
-        }
+    private record MatchedChunk(List<MatchedLine> matchedLines, int lineCount) implements LineChunk {
+    }
+
+    /**
+     * Parses the transaction lines, carrying the reporting category of the most recent section header forward,
+     * also across chunks.
+     */
+    private class LineParser2024Plus implements LineParser {
 
-        if (negativeDollarValueMatcher.matches()) {
-            return '-' + negativeDollarValueMatcher.group(1);
+        private final Consumer<Transaction> transactionConsumer;
+
+        private ReportingCategory reportingCategory;
+
+
+        LineParser2024Plus(Consumer<Transaction> transactionConsumer) {
+            this.transactionConsumer = transactionConsumer;
         }
 
-        throw new IllegalStateException("Expected dollar value '" + dollarValue + "' to match pattern '"
-                + POSITIVE_DOLLAR_VALUE_PATTERN.pattern() + "' or '" + NEGATIVE_DOLLAR_VALUE_PATTERN.pattern() + "'");
-    }
+        @Override
+        public void parseLine(String line) {
 
-    private MatchResult getNextMatch(Iterator<String> iterator, List<Pattern> patternsToMatch) {
-        String nextLine;
+            MatchedLine matchedLine = matchLine(line);
 
-        while (iterator.hasNext()) {
-            nextLine = iterator.next();
+            if (matchedLine != null) {
+                parseMatchedLine(matchedLine);
+            }
+        }
 
-            for (Pattern patternToMatch : patternsToMatch) {
-                Matcher matcher = patternToMatch.matcher(nextLine);
-                if (matcher.matches()) {
-                    LOGGER.debug("Parsing: {}", nextLine);
-                    return matcher.toMatchResult();
-                }
+        @Override
+        public void parseChunk(LineChunk chunk) {
+            for (MatchedLine matchedLine : ((MatchedChunk) chunk).matchedLines()) {
+                parseMatchedLine(matchedLine);
             }
+        }
+
+        private void parseMatchedLine(MatchedLine matchedLine) {
 
-            LOGGER.debug("Ignoring: {}", nextLine);
+            if (matchedLine.description() == null) {
+                reportingCategory = matchedLine.reportingCategory();
+            } else {
+                transactionConsumer.accept(new Transaction(matchedLine.dateSold(), matchedLine.dateAcquired(),
+                        matchedLine.salesProceeds(), matchedLine.description(), matchedLine.costBasis(), reportingCategory));
+            }
         }
 
-        return null;
+        @Override
+        public void finish() {
+            // Nothing is left open at the end of the document.
+        }
     }
 }
@@ -0,0 +1,212 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.FileMultipartFile;
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Converts a batch of synthetic documents, some of them in a ZIP archive and some of them broken, through the
+ * {@link ConverterController} and checks the CSVs and the manifest.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class BatchConversionTests {
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private ConverterController converterController;
+
+    @Autowired
+    private DocumentLoader documentLoader;
+
+    @Autowired
+    private DocumentConverter documentConverter;
+
+    @Autowired
+    private ConversionCache conversionCache;
+
+    @Test
+    public void testBatch() throws Exception {
+
+        SyntheticDocumentFolder.Document document2019 = documents.write("a.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 50));
+        SyntheticDocumentFolder.Document document2024 = documents.write("2024/a.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 50));
+        SyntheticDocumentFolder.Document document2016 = documents.write("2016/b.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2016, 10));
+
+        Path brokenPdf = documents.write("broken.pdf", "Not a PDF".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            putEntry(out, "2024/a.pdf", document2024.readPdf());
+            putEntry(out, "2016/b.pdf", document2016.readPdf());
+            putEntry(out, "readme.txt", "Not converted".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        converterController.convertPdfsToZip(List.of(document2019.upload(),
+                new FileMultipartFile(documents.write("clients.zip", zip.toByteArray())),
+                new FileMultipartFile(brokenPdf))).getBody().writeTo(result);
+
+        Map<String, byte[]> entries = readEntries(result.toByteArray());
+        List<CSVRecord> manifest = CSVFormat.Builder.create().setHeader().build()
+                .parse(new StringReader(new String(entries.get("manifest.csv"), StandardCharsets.UTF_8))).getRecords();
+
+        assertEquals(4, manifest.size());
+        assertEquals(3, entries.size());
+
+        assertEquals("a.pdf", manifest.get(0).get("File"));
+        assertConverted(document2019, manifest.get(0), entries);
+
+        assertEquals("clients.zip/2024/a.pdf", manifest.get(1).get("File"));
+        assertConverted(document2024, manifest.get(1), entries);
+
+        assertEquals("clients.zip/2016/b.pdf", manifest.get(2).get("File"));
+        assertEquals("", manifest.get(2).get("CSV"));
+        assertTrue(manifest.get(2).get("Error").startsWith("Tax year 2016 isn't supported."));
+
+        assertEquals("broken.pdf", manifest.get(3).get("File"));
+        assertEquals("", manifest.get(3).get("CSV"));
+        assertTrue(manifest.get(3).get("Error").length() > 0);
+    }
+
+    /**
+     * A conversion that is still running when the batch fails can't be cancelled, so it must delete its CSV once it
+     * finishes rather than leave it in the temporary directory.
+     */
+    @Test
+    public void testCsvOfConversionRunningWhenBatchFailsIsDeleted() throws Exception {
+
+        // The first conversion finishes, the second one waits until the test lets it finish, even when interrupted.
+        AtomicInteger conversions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CsvConverter blockingConverter = new CsvConverter(documentConverter, conversionCache) {
+            @Override
+            void convert(DocumentLoader.SpooledDocument document, OutputStream outputStream) throws IOException {
+                if (conversions.incrementAndGet() == 2) {
+                    started.countDown();
+                    awaitUninterruptibly(finish);
+                }
+                outputStream.write("Converted".getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        BatchConverter batchConverter = new BatchConverter(documentLoader, blockingConverter, 2, 10,
+                DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+
+        // Writing the CSV of the first conversion fails once the second one is running.
+        OutputStream failingOutputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                awaitUninterruptibly(started);
+                throw new IOException("Connection reset");
+            }
+        };
+
+        Set<Path> csvs = listTemporaryCsvs(Set.of());
+        try {
+            assertThrows(IOException.class, () -> batchConverter.convert(List.of(
+                    new FileMultipartFile(documents.write("a.pdf", "a".getBytes(StandardCharsets.UTF_8))),
+                    new FileMultipartFile(documents.write("b.pdf", "b".getBytes(StandardCharsets.UTF_8)))),
+                    failingOutputStream));
+        } finally {
+            finish.countDown();
+            batchConverter.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Set<Path> leakedCsvs = listTemporaryCsvs(csvs);
+        while (!leakedCsvs.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            leakedCsvs = listTemporaryCsvs(csvs);
+        }
+        assertEquals(Set.of(), leakedCsvs);
+    }
+
+    private static void assertConverted(SyntheticDocumentFolder.Document document, CSVRecord manifestRecord,
+                                        Map<String, byte[]> entries) throws IOException {
+
+        assertEquals("", manifestRecord.get("Error"));
+        assertTrue(manifestRecord.get("CSV").matches("a(-2)?\\.csv"));
+        assertEquals(document.readExpectedCsv(), new String(entries.get(manifestRecord.get("CSV")), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lists the temporary CSVs of batch conversions, except the ones given.
+     */
+    private static Set<Path> listTemporaryCsvs(Set<Path> except) throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().matches("prosper-1099-.*\\.csv"))
+                    .filter(file -> !except.contains(file))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException e) {
+                // The batch cancels conversions with an interrupt, which a conversion may not notice in time.
+            }
+        }
+    }
+
+    private static void putEntry(ZipOutputStream out, String name, byte[] content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+
+    private static Map<String, byte[]> readEntries(byte[] zip) throws IOException {
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                assertNull(entry.getName(), entries.put(entry.getName(), in.readAllBytes()));
+            }
+        }
+
+        return entries;
+    }
+}
@@ -0,0 +1,108 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.FileMultipartFile;
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Converts batches with ZIP archives that decompress to more than the configured limits, and checks that the
+ * documents before the limit are converted and the rest of the batch is skipped.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"prosper1099.batch.max-entry-size=1MB", "prosper1099.batch.max-decompressed-size=1536KB"})
+public class BatchLimitTests {
+
+    private static final int MB = 1024 * 1024;
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private ConverterController converterController;
+
+    @Test
+    public void testEntryLargerThanLimit() throws Exception {
+
+        Path zip = documents.getRoot().toPath().resolve("bomb.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            putEntry(out, "a.pdf", new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 20).toPdf());
+            putEntry(out, "b.pdf", new byte[2 * MB]);
+            putEntry(out, "c.pdf", new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 20).toPdf());
+        }
+
+        List<CSVRecord> manifest = convert(zip);
+
+        assertEquals(2, manifest.size());
+        assertEquals("bomb.zip/a.pdf", manifest.get(0).get("File"));
+        assertEquals("a.csv", manifest.get(0).get("CSV"));
+        assertEquals("bomb.zip/b.pdf", manifest.get(1).get("File"));
+        assertEquals("", manifest.get(1).get("CSV"));
+        assertTrue(manifest.get(1).get("Error").startsWith("Not converted, the PDF exceeds the maximum size"));
+    }
+
+    @Test
+    public void testBatchLargerThanLimit() throws Exception {
+
+        Path zip = documents.getRoot().toPath().resolve("bombs.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (String name : new String[]{"a.pdf", "b.pdf", "c.pdf"}) {
+                putEntry(out, name, new byte[MB]);
+            }
+        }
+
+        List<CSVRecord> manifest = convert(zip);
+
+        assertEquals(2, manifest.size());
+        assertEquals("bombs.zip/a.pdf", manifest.get(0).get("File"));
+        assertTrue(manifest.get(0).get("Error").length() > 0);
+        assertEquals("bombs.zip/b.pdf", manifest.get(1).get("File"));
+        assertTrue(manifest.get(1).get("Error").startsWith("Not converted, the ZIP archives of the batch exceed"));
+    }
+
+    private List<CSVRecord> convert(Path zip) throws IOException {
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        converterController.convertPdfsToZip(List.of(new FileMultipartFile(zip))).getBody().writeTo(result);
+
+        String manifest = null;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(result.toByteArray()))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                if (entry.getName().equals("manifest.csv")) {
+                    manifest = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        return CSVFormat.Builder.create().setHeader().build().parse(new StringReader(manifest)).getRecords();
+    }
+
+    private static void putEntry(ZipOutputStream out, String name, byte[] content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,170 @@
+package com.prosper1099;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConversionCacheTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock();
+
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+
+        ConversionCache cache = newCache(DataSize.ofBytes(10), "");
+        cache.put("a", bytes("aaaa"));
+        cache.put("b", bytes("bbbb"));
+        cache.get("a");
+        cache.put("c", bytes("cccc"));
+
+        assertArrayEquals(bytes("aaaa"), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertArrayEquals(bytes("cccc"), cache.get("c"));
+        assertEquals(1L, (long) cache.getStatistics().get("evictions"));
+        assertEquals(8L, (long) cache.getStatistics().get("bytes"));
+    }
+
+    @Test
+    public void testExpires() throws IOException {
+
+        ConversionCache cache = newCache(DataSize.ofKilobytes(1), "");
+        cache.put("a", bytes("aaaa"));
+
+        clock.advance(Duration.ofMinutes(61));
+
+        assertNull(cache.get("a"));
+        assertEquals(0L, (long) cache.getStatistics().get("entries"));
+    }
+
+    @Test
+    public void testRecordingLargerThanMaxEntrySizeIsNotCached() throws IOException {
+
+        ConversionCache cache = newCache(DataSize.ofKilobytes(1), "");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConversionCache.Recording recording = cache.record("a", out);
+        recording.write(new byte[200]);
+        recording.commit();
+
+        assertEquals(200, out.size());
+        assertNull(cache.get("a"));
+
+        recording = cache.record("b", out);
+        recording.write(new byte[50]);
+        recording.commit();
+
+        assertArrayEquals(new byte[50], cache.get("b"));
+    }
+
+    @Test
+    public void testDirectorySurvivesRestart() throws IOException {
+
+        String directory = temporaryFolder.getRoot().getPath();
+        newCache(DataSize.ofKilobytes(1), directory).put("a", bytes("aaaa"));
+
+        ConversionCache cache = newCache(DataSize.ofKilobytes(1), directory);
+
+        assertArrayEquals(bytes("aaaa"), cache.get("a"));
+        assertEquals(1L, (long) cache.getStatistics().get("diskHits"));
+        assertEquals(4L, (long) cache.getStatistics().get("directoryBytes"));
+    }
+
+    @Test
+    public void testReplacingOrExpiringIsNotAnEviction() throws IOException {
+
+        ConversionCache cache = newCache(DataSize.ofKilobytes(1), temporaryFolder.getRoot().getPath());
+        cache.put("a", bytes("aaaa"));
+        cache.put("a", bytes("aaaa"));
+
+        clock.advance(Duration.ofMinutes(61));
+
+        assertNull(cache.get("a"));
+        assertEquals(0L, (long) cache.getStatistics().get("evictions"));
+        assertEquals(0L, (long) cache.getStatistics().get("directoryBytes"));
+    }
+
+    @Test
+    public void testResultsOfOtherVersionsAreNotServed() throws IOException {
+
+        Path directory = temporaryFolder.getRoot().toPath();
+        Files.write(directory.resolve("a"), bytes("aaaa"));
+        Files.createDirectories(directory.resolve("v0"));
+        Files.write(directory.resolve("v0").resolve("a"), bytes("aaaa"));
+
+        ConversionCache cache = newCache(DataSize.ofKilobytes(1), directory.toString());
+
+        assertNull(cache.get("a"));
+        assertEquals(0L, (long) cache.getStatistics().get("directoryBytes"));
+    }
+
+    @Test
+    public void testEvictionSkipsResultsBeingWritten() throws IOException {
+
+        Path directory = temporaryFolder.getRoot().toPath();
+        ConversionCache cache = newCache(DataSize.ofKilobytes(2), directory.toString());
+        Path beingWritten = Files.createTempFile(directory.resolve("tmp"), "b", ".tmp");
+
+        for (int i = 0; i < 12; i++) {
+            cache.put("a" + i, new byte[100]);
+        }
+
+        assertEquals(2L, (long) cache.getStatistics().get("evictions"));
+        assertTrue(Files.exists(beingWritten));
+    }
+
+    private ConversionCache newCache(DataSize maxSize, String directory) throws IOException {
+        return new ConversionCache(true, maxSize, DataSize.ofBytes(100), Duration.ofHours(1), directory,
+                DataSize.ofKilobytes(1), clock);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.now();
+
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
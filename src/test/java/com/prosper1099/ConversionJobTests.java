@@ -0,0 +1,149 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.FileMultipartFile;
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs synthetic documents through the {@link JobController} with a single thread and a queue of a single job.
+ * The test of a full queue uses its own {@link ConversionJobs} whose conversions wait until the test lets them
+ * finish.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"prosper1099.jobs.parallelism=1", "prosper1099.jobs.queue-capacity=1"})
+public class ConversionJobTests {
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private JobController jobController;
+
+    @Autowired
+    private DocumentLoader documentLoader;
+
+    @Autowired
+    private DocumentConverter documentConverter;
+
+    @Autowired
+    private ConversionCache conversionCache;
+
+    @Test
+    public void testJob() throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 200));
+
+        ResponseEntity<ConversionJob> submitted = jobController.submitJob(document.upload());
+        assertEquals(HttpStatus.ACCEPTED, submitted.getStatusCode());
+
+        ConversionJob job = awaitFinished(jobController, submitted.getBody().getId());
+        assertEquals(ConversionJob.Status.SUCCEEDED, job.getStatus());
+
+        ResponseEntity<Resource> csv = jobController.getJobCsv(job.getId());
+        assertEquals(HttpStatus.OK, csv.getStatusCode());
+        assertEquals(document.readExpectedCsv(), csv.getBody().getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFailedJob() throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2016, 10));
+
+        ConversionJob job = awaitFinished(jobController, jobController.submitJob(document.upload()).getBody().getId());
+
+        assertEquals(ConversionJob.Status.FAILED, job.getStatus());
+        assertEquals(HttpStatus.CONFLICT, jobController.getJobCsv(job.getId()).getStatusCode());
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 10));
+
+        // Conversions wait until the test lets them finish, so the first job is still running on the only thread
+        // when the third one is submitted.
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CsvConverter blockingConverter = new CsvConverter(documentConverter, conversionCache) {
+            @Override
+            void convert(DocumentLoader.SpooledDocument document, OutputStream outputStream) throws IOException {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                super.convert(document, outputStream);
+            }
+        };
+        ConversionJobs conversionJobs = new ConversionJobs(documentLoader, blockingConverter, 1, 1, Duration.ofHours(1));
+        JobController jobController = new JobController(conversionJobs, Duration.ofSeconds(30));
+
+        try {
+            // The first job runs, the second one is queued and the third one is rejected without being spooled.
+            ResponseEntity<ConversionJob> running = jobController.submitJob(document.upload());
+            started.await();
+            ResponseEntity<ConversionJob> queued = jobController.submitJob(document.upload());
+            ResponseEntity<ConversionJob> rejected = jobController.submitJob(new FileMultipartFile(document.pdf()) {
+                @Override
+                public void transferTo(File dest) {
+                    throw new AssertionError("Rejected upload was spooled.");
+                }
+            });
+
+            assertEquals(HttpStatus.ACCEPTED, running.getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, queued.getStatusCode());
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+            assertEquals("30", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+            finish.countDown();
+            assertEquals(ConversionJob.Status.SUCCEEDED, awaitFinished(jobController, running.getBody().getId()).getStatus());
+            assertEquals(ConversionJob.Status.SUCCEEDED, awaitFinished(jobController, queued.getBody().getId()).getStatus());
+        } finally {
+            finish.countDown();
+            conversionJobs.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnknownJob() {
+        assertEquals(HttpStatus.NOT_FOUND, jobController.getJob("unknown").getStatusCode());
+    }
+
+    private static ConversionJob awaitFinished(JobController jobController, String id) throws InterruptedException {
+
+        for (int i = 0; i < 600; i++) {
+            ConversionJob job = jobController.getJob(id).getBody();
+            if (job.getFinished() != null) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+
+        throw new AssertionError("Job " + id + " didn't finish.");
+    }
+}
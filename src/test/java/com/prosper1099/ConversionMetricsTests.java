@@ -0,0 +1,114 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.FileMultipartFile;
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Converts a synthetic document through the {@link ConverterController} and checks the metrics of the conversion.
+ * The cache is disabled so the document is converted each time.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "prosper1099.cache.enabled=false")
+public class ConversionMetricsTests {
+
+    private static final Tags TAGS = Tags.of("taxYear", "2021", "parser", "TransactionParser2017To2023");
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private ConverterController converterController;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testMetrics() throws Exception {
+
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2021, 120);
+        Path pdf = convert(generator);
+
+        Timer conversion = meterRegistry.get("prosper1099.conversion").tags(TAGS).tag("outcome", "success").timer();
+        assertEquals(1, conversion.count());
+
+        double stagesSeconds = 0;
+        for (String stage : new String[]{"admission", "load", "extraction", "tax-year", "parsing", "output"}) {
+            Timer timer = meterRegistry.get("prosper1099.conversion.stage").tags(TAGS).tag("stage", stage).timer();
+            assertEquals(stage, 1, timer.count());
+            assertTrue(stage, timer.totalTime(TimeUnit.NANOSECONDS) >= 0);
+            stagesSeconds += timer.totalTime(TimeUnit.SECONDS);
+        }
+        assertTrue(stagesSeconds <= conversion.totalTime(TimeUnit.SECONDS));
+
+        assertEquals(generator.getPageCount(), meterRegistry.get("prosper1099.pages").tags(TAGS).counter().count(), 0);
+        assertTrue(meterRegistry.get("prosper1099.lines").tags(TAGS).counter().count() >= generator.lines().size());
+        assertEquals(120, meterRegistry.get("prosper1099.transactions").tags(TAGS).counter().count(), 0);
+        assertEquals(Files.size(pdf), meterRegistry.get("prosper1099.bytes").tags(TAGS).counter().count(), 0);
+        assertEquals(0, meterRegistry.get("prosper1099.pages.skipped").tags(TAGS).counter().count(), 0);
+    }
+
+    @Test
+    public void testSkippedPages() throws Exception {
+
+        // The first 1099-OID page is extracted with the probe pages, the other one and the instruction pages are skipped.
+        convert(new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2022, 120).boilerplatePages(4));
+
+        Tags tags = Tags.of("taxYear", "2022", "parser", "TransactionParser2017To2023");
+        assertEquals(3, meterRegistry.get("prosper1099.pages.skipped").tags(tags).counter().count(), 0);
+        assertEquals(120, meterRegistry.get("prosper1099.transactions").tags(tags).counter().count(), 0);
+    }
+
+    /**
+     * A document that fails to load spends its time in the load stage, none of it in extraction or parsing.
+     */
+    @Test
+    public void testFailedLoad() throws Exception {
+
+        Path pdf = documents.write("broken.pdf", "Not a PDF".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> converterController.convertPdfToCsv(new FileMultipartFile(pdf)).getBody()
+                .writeTo(new ByteArrayOutputStream()));
+
+        Tags tags = Tags.of("taxYear", "unknown", "parser", "unknown");
+        assertEquals(1, meterRegistry.get("prosper1099.conversion").tags(tags).tag("outcome", "failure").timer().count());
+        assertTrue(stageNanos(tags, "load") > 0);
+        for (String stage : new String[]{"extraction", "tax-year", "parsing", "output"}) {
+            assertEquals(stage, 0, stageNanos(tags, stage), 0);
+        }
+    }
+
+    private double stageNanos(Tags tags, String stage) {
+        return meterRegistry.get("prosper1099.conversion.stage").tags(tags).tag("stage", stage).timer()
+                .totalTime(TimeUnit.NANOSECONDS);
+    }
+
+    private Path convert(SyntheticDocumentGenerator generator) throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf", generator);
+        converterController.convertPdfToCsv(document.upload()).getBody().writeTo(new ByteArrayOutputStream());
+
+        return document.pdf();
+    }
+}
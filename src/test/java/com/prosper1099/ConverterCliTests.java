@@ -0,0 +1,53 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Runs the {@link ConverterCli} on a directory of synthetic documents, one of them broken, and compares the CSVs
+ * written next to the PDFs with the golden CSVs.
+ */
+public class ConverterCliTests {
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Test
+    public void testDirectory() throws Exception {
+
+        SyntheticDocumentFolder.Document a = documents.write("statements/a.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 50));
+        SyntheticDocumentFolder.Document b = documents.write("statements/2024/b.PDF",
+                new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 50));
+        documents.write("statements/broken.pdf", "Not a PDF".getBytes(StandardCharsets.UTF_8));
+        Path directory = documents.getRoot().toPath().resolve("statements");
+
+        int exitCode;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ConverterCli.class)
+                .web(WebApplicationType.NONE)
+                .profiles("cli")
+                .run("--threads=2", directory.toString())) {
+            exitCode = SpringApplication.exit(context);
+        }
+
+        assertEquals(1, exitCode);
+        assertArrayEquals(Files.readAllBytes(a.expectedCsv()), Files.readAllBytes(directory.resolve("a.csv")));
+        assertArrayEquals(Files.readAllBytes(b.expectedCsv()), Files.readAllBytes(directory.resolve("2024/b.csv")));
+        assertFalse(Files.exists(directory.resolve("broken.csv")));
+    }
+}
@@ -0,0 +1,109 @@
+package com.prosper1099;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Converts documents that must be rejected on the probe pages, the first 2 pages by default, and checks that the
+ * conversion fails before any transaction parser is started.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class DocumentConverterTests {
+
+    private static final String FIRST_LINE_MESSAGE = "First line must match \"PROSPER FUNDING LLC\".";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private DocumentConverter documentConverter;
+
+    @Autowired
+    private DocumentLoader documentLoader;
+
+
+    @Test
+    public void testFirstLineOfOtherIssuer() throws IOException {
+        assertRejected(FIRST_LINE_MESSAGE,
+                List.of("OTHER FUNDING LLC", "Tax Year 2019 Combined Form"),
+                List.of("Form 1099-B Proceeds From Broker and Barter Exchange Transactions 2019"));
+    }
+
+    @Test
+    public void testBlankProbePages() throws IOException {
+        assertRejected(FIRST_LINE_MESSAGE,
+                List.of(),
+                List.of(),
+                List.of("PROSPER FUNDING LLC", "Tax Year 2019 Combined Form"));
+    }
+
+    @Test
+    public void testTaxYearAfterProbePages() throws IOException {
+        assertRejected("Unable to find tax year.",
+                List.of("PROSPER FUNDING LLC", "221 Main Street, Suite 300", "San Francisco, CA 94105"),
+                List.of("Instructions for Recipient"),
+                List.of("Tax Year 2019 Combined Form"));
+    }
+
+    @SafeVarargs
+    private void assertRejected(String message, List<String>... pages) throws IOException {
+
+        Path pdf = temporaryFolder.newFile("document.pdf").toPath();
+        try (PDDocument document = new PDDocument()) {
+            for (List<String> lines : pages) {
+                addPage(document, lines);
+            }
+            document.save(pdf.toFile());
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> documentConverter.convert(documentLoader.open(pdf), new TransactionHandler() {
+
+                    @Override
+                    public void start(String taxYear, TransactionParser transactionParser) {
+                        throw new AssertionError("Started parsing tax year " + taxYear);
+                    }
+
+                    @Override
+                    public void transaction(Transaction transaction) {
+                        throw new AssertionError("Unexpected transaction");
+                    }
+                }));
+
+        assertEquals(message, e.getMessage());
+    }
+
+    private static void addPage(PDDocument document, List<String> lines) throws IOException {
+
+        PDPage page = new PDPage();
+        document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA, 10);
+            contentStream.newLineAtOffset(36, page.getMediaBox().getHeight() - 36);
+            for (String line : lines) {
+                contentStream.showText(line);
+                contentStream.newLineAtOffset(0, -14);
+            }
+            contentStream.endText();
+        }
+    }
+}
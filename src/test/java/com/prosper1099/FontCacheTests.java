@@ -0,0 +1,113 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FontCacheTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 100)
+            .embeddedFont(true);
+    private final DocumentParser documentParser = new DocumentParser(1, 50, 2, true);
+    private Path pdf;
+
+
+    @Before
+    public void writeDocument() throws IOException {
+        pdf = temporaryFolder.getRoot().toPath().resolve("document.pdf");
+        Files.write(pdf, generator.toPdf());
+    }
+
+    @After
+    public void shutdown() {
+        documentParser.shutdown();
+    }
+
+    @Test
+    public void testLaterDocumentsReuseFonts() throws IOException {
+
+        FontCache fontCache = new FontCache(256);
+        DocumentSource documentSource = newDocumentLoader(fontCache).open(pdf);
+
+        for (int i = 0; i < 3; i++) {
+            try (PDDocument document = documentSource.load()) {
+                assertEquals(generator.lines(), withoutLastLine(documentParser.parseDocument(document)));
+            }
+        }
+
+        assertEquals(2L, (long) fontCache.getStatistics().get("hits"));
+        assertEquals(1L, (long) fontCache.getStatistics().get("misses"));
+        assertEquals(1L, (long) fontCache.getStatistics().get("fonts"));
+    }
+
+    @Test
+    public void testFontIsUsedByOneDocumentAtATime() throws IOException {
+
+        DocumentSource documentSource = newDocumentLoader(new FontCache(256)).open(pdf);
+
+        try (PDDocument first = documentSource.load(); PDDocument second = documentSource.load()) {
+            PDFont font = getFont(first);
+            assertNotSame(font, getFont(second));
+
+            FontCache.releaseFonts(first);
+            try (PDDocument third = documentSource.load()) {
+                assertSame(font, getFont(third));
+            }
+        }
+    }
+
+    @Test
+    public void testEvictsWhenFull() throws IOException {
+
+        FontCache fontCache = new FontCache(1);
+        DocumentSource documentSource = newDocumentLoader(fontCache).open(pdf);
+
+        try (PDDocument first = documentSource.load(); PDDocument second = documentSource.load()) {
+            getFont(first);
+            getFont(second);
+            FontCache.releaseFonts(first);
+            FontCache.releaseFonts(second);
+        }
+
+        assertEquals(1L, (long) fontCache.getStatistics().get("evictions"));
+        assertEquals(1L, (long) fontCache.getStatistics().get("fonts"));
+    }
+
+    private static DocumentLoader newDocumentLoader(FontCache fontCache) {
+        return new DocumentLoader(DataSize.ofMegabytes(16), "", fontCache);
+    }
+
+    private static PDFont getFont(PDDocument document) throws IOException {
+        PDResources resources = document.getPage(0).getResources();
+        COSName fontName = resources.getFontNames().iterator().next();
+        return resources.getFont(fontName);
+    }
+
+    /**
+     * Drops the empty line written after the last page.
+     */
+    private static List<String> withoutLastLine(List<String> lines) {
+        return lines.subList(0, lines.size() - 1);
+    }
+}
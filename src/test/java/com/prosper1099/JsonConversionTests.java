@@ -0,0 +1,141 @@
+package com.prosper1099;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests a synthetic document from the {@link ConverterController} as CSV, NDJSON and JSON and compares the
+ * transactions with the golden CSV written by the generator.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class JsonConversionTests {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    @ClassRule
+    public static SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    private static byte[] pdf;
+    private static List<CSVRecord> expectedRecords;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    @BeforeClass
+    public static void generateDocument() throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf",
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 200));
+
+        pdf = document.readPdf();
+        expectedRecords = document.readExpectedRecords();
+    }
+
+    @Test
+    public void testCsvByDefault() throws Exception {
+
+        MvcResult result = convert("*/*");
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(new MediaType("text", "csv")));
+    }
+
+    @Test
+    public void testNdjson() throws Exception {
+
+        MvcResult result = convert(MediaType.APPLICATION_NDJSON_VALUE);
+        String ndjson = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<JsonNode> transactions = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            transactions.add(objectMapper.readTree(line));
+        }
+
+        assertMatchesGoldenCsv(transactions);
+    }
+
+    @Test
+    public void testJson() throws Exception {
+
+        // The browser's default Accept header prefers JSON.
+        MvcResult result = convert("application/json, text/plain, */*");
+        String json = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<JsonNode> transactions = new ArrayList<>();
+        objectMapper.readTree(json).forEach(transactions::add);
+
+        assertMatchesGoldenCsv(transactions);
+    }
+
+    private MvcResult convert(String accept) throws Exception {
+        return mockMvc.perform(multipart("/convertPdfToCsv")
+                        .file(new MockMultipartFile("file", "document.pdf", "application/pdf", pdf))
+                        .header("Accept", accept))
+                .andReturn();
+    }
+
+    private static void assertMatchesGoldenCsv(List<JsonNode> transactions) {
+
+        assertEquals(expectedRecords.size(), transactions.size());
+
+        for (int i = 0; i < transactions.size(); i++) {
+            CSVRecord expected = expectedRecords.get(i);
+            JsonNode transaction = transactions.get(i);
+
+            assertEquals(LocalDate.parse(expected.get("Date Sold"), DATE_FORMAT).toString(), transaction.get("dateSold").asText());
+            assertEquals(LocalDate.parse(expected.get("Date Acquired"), DATE_FORMAT).toString(), transaction.get("dateAcquired").asText());
+            assertAmount(expected.get("Sales Proceeds"), transaction.get("salesProceeds"));
+            assertEquals(expected.get("Description"), transaction.get("description").asText());
+            assertAmount(expected.get("Cost Basis"), transaction.get("costBasis"));
+            assertEquals(expected.get("Reporting Category"), transaction.get("reportingCategory").asText());
+        }
+    }
+
+    private static void assertAmount(String expected, JsonNode amount) {
+        assertTrue(amount.isNumber());
+        assertEquals(expected, 0, new BigDecimal(expected).compareTo(amount.decimalValue()));
+    }
+}
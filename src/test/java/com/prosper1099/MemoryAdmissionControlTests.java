@@ -0,0 +1,176 @@
+package com.prosper1099;
+
+import org.junit.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MemoryAdmissionControlTests {
+
+    @Test
+    public void testSmallDocumentPassesWaitingLargeDocument() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        MemoryAdmissionControl.Admission running = admissionControl.admit(60);
+        CompletableFuture<MemoryAdmissionControl.Admission> large = admitAsync(admissionControl, 60);
+        awaitWaiting(admissionControl, 1);
+
+        MemoryAdmissionControl.Admission small = admissionControl.admit(30);
+        assertEquals(90, admissionControl.getReserved());
+        assertFalse(large.isDone());
+        small.close();
+
+        running.close();
+        large.get(10, TimeUnit.SECONDS).close();
+
+        assertEquals(0, admissionControl.getReserved());
+    }
+
+    @Test
+    public void testSmallDocumentWaitsForStarvingLargeDocument() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(Duration.ZERO, Duration.ofMinutes(1));
+
+        MemoryAdmissionControl.Admission running = admissionControl.admit(60);
+        CompletableFuture<MemoryAdmissionControl.Admission> large = admitAsync(admissionControl, 60);
+        awaitWaiting(admissionControl, 1);
+        CompletableFuture<MemoryAdmissionControl.Admission> small = admitAsync(admissionControl, 30);
+        awaitWaiting(admissionControl, 2);
+
+        Thread.sleep(100);
+        assertFalse(small.isDone());
+
+        running.close();
+        large.get(10, TimeUnit.SECONDS).close();
+        small.get(10, TimeUnit.SECONDS).close();
+
+        assertEquals(0, admissionControl.getReserved());
+    }
+
+    @Test(expected = AdmissionTimeoutException.class)
+    public void testTimeout() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(Duration.ofMinutes(1), Duration.ofMillis(100));
+
+        admissionControl.admit(100);
+        admissionControl.admit(1);
+    }
+
+    @Test
+    public void testDocumentLargerThanBudget() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        MemoryAdmissionControl.Admission admission = admissionControl.admit(1000);
+        assertEquals(100, admissionControl.getReserved());
+        admission.close();
+
+        assertEquals(0, admissionControl.getReserved());
+    }
+
+    @Test
+    public void testPagesReplaceFileSizeEstimate() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(DataSize.ofBytes(1));
+
+        MemoryAdmissionControl.Admission admission = admissionControl.admit(60);
+        admission.reservePages(20);
+        assertEquals(20, admissionControl.getReserved());
+
+        admission.close();
+        assertEquals(0, admissionControl.getReserved());
+    }
+
+    @Test
+    public void testPagesWaitForBudget() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(DataSize.ofBytes(1));
+
+        MemoryAdmissionControl.Admission extracting = admissionControl.admit(10);
+        extracting.reservePages(50);
+        MemoryAdmissionControl.Admission loaded = admissionControl.admit(10);
+        CompletableFuture<Void> pages = reservePagesAsync(loaded, 80);
+        awaitWaiting(admissionControl, 1);
+
+        // Documents waiting for their pages go before documents that aren't loaded yet, even ones that would fit.
+        // Once the pages are reserved, the next document doesn't fit until the loaded one is closed.
+        CompletableFuture<MemoryAdmissionControl.Admission> next = admitAsync(admissionControl, 30);
+        awaitWaiting(admissionControl, 2);
+        Thread.sleep(100);
+        assertFalse(pages.isDone());
+        assertFalse(next.isDone());
+
+        extracting.close();
+        pages.get(10, TimeUnit.SECONDS);
+        assertEquals(80, admissionControl.getReserved());
+        assertFalse(next.isDone());
+
+        loaded.close();
+        next.get(10, TimeUnit.SECONDS).close();
+        assertEquals(0, admissionControl.getReserved());
+    }
+
+    @Test
+    public void testLoadedDocumentsDontWaitForEachOther() throws Exception {
+
+        MemoryAdmissionControl admissionControl = newAdmissionControl(DataSize.ofBytes(1));
+
+        MemoryAdmissionControl.Admission first = admissionControl.admit(40);
+        MemoryAdmissionControl.Admission second = admissionControl.admit(40);
+
+        // Neither fits while the other holds its estimate, so the first is admitted over the budget.
+        first.reservePages(90);
+        assertEquals(130, admissionControl.getReserved());
+
+        CompletableFuture<Void> pages = reservePagesAsync(second, 90);
+        awaitWaiting(admissionControl, 1);
+
+        first.close();
+        pages.get(10, TimeUnit.SECONDS);
+        second.close();
+
+        assertEquals(0, admissionControl.getReserved());
+    }
+
+    private static MemoryAdmissionControl newAdmissionControl(Duration starvationThreshold, Duration timeout) {
+        return new MemoryAdmissionControl(DataSize.ofBytes(100), DataSize.ofBytes(0), 1.0, DataSize.ofBytes(0),
+                starvationThreshold, timeout);
+    }
+
+    private static MemoryAdmissionControl newAdmissionControl(DataSize pageCost) {
+        return new MemoryAdmissionControl(DataSize.ofBytes(100), DataSize.ofBytes(0), 1.0, pageCost,
+                Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    private static CompletableFuture<MemoryAdmissionControl.Admission> admitAsync(MemoryAdmissionControl admissionControl, long fileSize) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return admissionControl.admit(fileSize);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static CompletableFuture<Void> reservePagesAsync(MemoryAdmissionControl.Admission admission, int numberOfPages) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                admission.reservePages(numberOfPages);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void awaitWaiting(MemoryAdmissionControl admissionControl, int waiting) throws InterruptedException {
+        while (admissionControl.getWaiting() != waiting) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classifies the pages of synthetic documents with the markers of each transaction parser, and pages whose text
+ * can't be decoded from the content stream alone.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class PageClassifierTests {
+
+    private static final String TRANSACTION_LINE = "01/15/2019 03/01/2018 $12.34 123456-1 NOTE";
+
+    @Autowired
+    private TransactionParsers transactionParsers;
+
+
+    @Test
+    public void testLayout2017To2023() throws IOException {
+        assertClassifiesDetailPages("2019", new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 50)
+                .boilerplatePages(4));
+        assertClassifiesDetailPages("2019", new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 50)
+                .boilerplatePages(4).embeddedFont(true));
+    }
+
+    @Test
+    public void testLayout2024Plus() throws IOException {
+        assertClassifiesDetailPages("2024", new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 50)
+                .boilerplatePages(4));
+        assertClassifiesDetailPages("2024", new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 50)
+                .boilerplatePages(4).embeddedFont(true));
+    }
+
+    /**
+     * The markers of the 2017-2023 parser are checked with white space removed.
+     */
+    @Test
+    public void testMarkers2017To2023() throws IOException {
+        assertClassification("2019", true, "Applicable check box on Form 8949 B");
+        assertClassification("2019", true, "Cost or other basis Box 1e. $12.34");
+        assertClassification("2019", true, TRANSACTION_LINE);
+        assertClassification("2019", false, "Box 1e. Shows the cost or other basis of securities sold.");
+        assertClassification("2019", false, "Loan 123456-1 Box 1. Original issue discount for 2019 $1.23");
+    }
+
+    @Test
+    public void testMarkers2024Plus() throws IOException {
+        assertClassification("2024", true, "Covered Short-Term Gains or Losses on Net Proceeds Report on Form 8949, Part I with Box A checked");
+        assertClassification("2024", true, TRANSACTION_LINE);
+        assertClassification("2024", false, "Applicable check box on Form 8949 B");
+        assertClassification("2024", false, "Loan 123456-1 Box 1. Original issue discount for 2024 $1.23");
+    }
+
+    /**
+     * A font set between q and Q is only used until Q restores the previous font. Decoding the transaction line in
+     * the Symbol font would turn the dollar sign and the letters into other symbols.
+     */
+    @Test
+    public void testFontRestoredByGraphicsState() throws IOException {
+
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = addPage(document);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.setFont(PDType1Font.HELVETICA, 10);
+                contentStream.saveGraphicsState();
+                contentStream.setFont(PDType1Font.SYMBOL, 10);
+                showText(contentStream, 700, "\u03b1\u03b2\u03b3");
+                contentStream.restoreGraphicsState();
+                showText(contentStream, 680, TRANSACTION_LINE);
+            }
+
+            assertTrue(PageClassifier.readText(page).endsWith(TRANSACTION_LINE.replace(" ", "")));
+            for (String taxYear : new String[]{"2019", "2024"}) {
+                assertTrue(taxYear, newPageClassifier(taxYear).mayContainTransactions(page));
+            }
+        }
+    }
+
+    /**
+     * Pages with text in a font without a Unicode mapping, text shown before any font is set, or a form XObject
+     * are extracted, whatever the markers.
+     */
+    @Test
+    public void testUndecodablePagesAreExtracted() throws IOException {
+
+        try (PDDocument document = new PDDocument()) {
+
+            PDPage unmappedFontPage = addPage(document);
+            PDResources resources = new PDResources();
+            COSName fontName = resources.add(newFontWithoutUnicodeMapping());
+            setContents(document, unmappedFontPage, resources, "BT /" + fontName.getName() + " 10 Tf 36 700 Td (AB) Tj ET");
+
+            PDPage noFontPage = addPage(document);
+            setContents(document, noFontPage, new PDResources(), "BT 36 700 Td (Instructions for Recipient) Tj ET");
+
+            PDPage formPage = addPage(document);
+            PDFormXObject form = new PDFormXObject(document);
+            form.setBBox(PDRectangle.LETTER);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, formPage)) {
+                contentStream.drawForm(form);
+            }
+
+            for (PDPage page : new PDPage[]{unmappedFontPage, noFontPage, formPage}) {
+                assertNull(PageClassifier.readText(page));
+                for (String taxYear : new String[]{"2019", "2024"}) {
+                    PageClassifier pageClassifier = newPageClassifier(taxYear);
+                    assertTrue(taxYear, pageClassifier.mayContainTransactions(page));
+                    assertEquals(0, pageClassifier.getSkippedPages());
+                }
+            }
+        }
+    }
+
+    /**
+     * Classifies each page of the document, which has a summary page, then half of the boilerplate pages, the
+     * detail pages and the other half of the boilerplate pages.
+     */
+    private void assertClassifiesDetailPages(String taxYear, SyntheticDocumentGenerator generator) throws IOException {
+
+        try (PDDocument document = PDDocument.load(generator.toPdf())) {
+            PageClassifier pageClassifier = newPageClassifier(taxYear);
+            int pageCount = document.getNumberOfPages();
+
+            for (int i = 0; i < pageCount; i++) {
+                PDPage page = document.getPage(i);
+                assertNotNull("Page " + (i + 1), PageClassifier.readText(page));
+                boolean detailPage = i >= 3 && i < pageCount - 2;
+                assertEquals("Page " + (i + 1), detailPage, pageClassifier.mayContainTransactions(page));
+            }
+
+            assertEquals(5, pageClassifier.getSkippedPages());
+        }
+    }
+
+    private void assertClassification(String taxYear, boolean mayContainTransactions, String line) throws IOException {
+
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = addPage(document);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.setFont(PDType1Font.HELVETICA, 10);
+                showText(contentStream, 700, line);
+            }
+
+            assertEquals(line, mayContainTransactions, newPageClassifier(taxYear).mayContainTransactions(page));
+        }
+    }
+
+    private PageClassifier newPageClassifier(String taxYear) {
+        return new PageClassifier(transactionParsers.getTransactionParser(taxYear));
+    }
+
+    private static PDPage addPage(PDDocument document) {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        return page;
+    }
+
+    private static void showText(PDPageContentStream contentStream, float y, String text) throws IOException {
+        contentStream.beginText();
+        contentStream.newLineAtOffset(36, y);
+        contentStream.showText(text);
+        contentStream.endText();
+    }
+
+    private static void setContents(PDDocument document, PDPage page, PDResources resources, String contents)
+            throws IOException {
+        page.setResources(resources);
+        page.setContents(new PDStream(document, new ByteArrayInputStream(contents.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    /**
+     * A font whose encoding maps the codes of A and B to glyph names without a Unicode value, as in fonts of some
+     * PDF writers that have neither standard glyph names nor a ToUnicode map.
+     */
+    private static PDFont newFontWithoutUnicodeMapping() throws IOException {
+
+        COSArray differences = new COSArray();
+        differences.add(COSInteger.get('A'));
+        differences.add(COSName.getPDFName("glyph1"));
+        differences.add(COSName.getPDFName("glyph2"));
+
+        COSDictionary encoding = new COSDictionary();
+        encoding.setItem(COSName.TYPE, COSName.ENCODING);
+        encoding.setItem(COSName.DIFFERENCES, differences);
+
+        COSDictionary font = new COSDictionary();
+        font.setItem(COSName.TYPE, COSName.FONT);
+        font.setItem(COSName.SUBTYPE, COSName.TYPE1);
+        font.setName(COSName.BASE_FONT, "Helvetica");
+        font.setItem(COSName.ENCODING, encoding);
+
+        return new PDType1Font(font);
+    }
+}
@@ -0,0 +1,145 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Extracts synthetic documents whose notes and sections span pages in page ranges of various sizes on 4 threads, so
+ * that transactions and sections span page ranges, and compares the lines and the transactions with those extracted
+ * sequentially, with and without skipping pages.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ParallelExtractionTests {
+
+    private static final int NOTES = 300;
+    private static final int[] CHUNK_SIZES = {1, 2, 3, 5, 13};
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private TransactionParsers transactionParsers;
+
+    @Autowired
+    private MemoryAdmissionControl memoryAdmissionControl;
+
+    @Autowired
+    private ConversionMetrics conversionMetrics;
+
+    @Autowired
+    private DocumentLoader documentLoader;
+
+
+    @Test
+    public void testLayout2017To2023() throws IOException {
+        assertSameAsSequential(new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, NOTES)
+                .boilerplatePages(3).notesSpanPages(true).embeddedFont(true));
+    }
+
+    @Test
+    public void testLayout2024Plus() throws IOException {
+        assertSameAsSequential(new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, NOTES)
+                .notesPerPage(8).boilerplatePages(3).notesSpanPages(true).embeddedFont(true));
+    }
+
+    private void assertSameAsSequential(SyntheticDocumentGenerator generator) throws IOException {
+
+        DocumentSource documentSource = documentLoader.open(documents.write("document.pdf", generator).pdf());
+        assertTrue(generator.getPageCount() > 2 * CHUNK_SIZES[CHUNK_SIZES.length - 1]);
+
+        for (boolean skipPages : new boolean[]{false, true}) {
+            List<String> expectedLines = extractLines(new DocumentParser(1, 50, 2, skipPages), documentSource);
+            List<Transaction> expectedTransactions = convert(new DocumentParser(1, 50, 2, skipPages), documentSource);
+            assertEquals(NOTES, expectedTransactions.size());
+
+            for (int chunkSize : CHUNK_SIZES) {
+                String message = "Chunk size " + chunkSize + ", skip pages " + skipPages;
+                assertEquals(message, expectedLines, extractLines(new DocumentParser(4, chunkSize, 2, skipPages), documentSource));
+                assertEquals(message, expectedTransactions, convert(new DocumentParser(4, chunkSize, 2, skipPages), documentSource));
+            }
+        }
+    }
+
+    /**
+     * Extracts the lines the way {@link DocumentConverter} does, with a transaction parser that doesn't match lines
+     * on the extraction threads, so the page ranges are handed over as lines.
+     */
+    private List<String> extractLines(DocumentParser documentParser, DocumentSource documentSource) throws IOException {
+
+        List<String> lines = new ArrayList<>();
+        try (PDDocument document = documentSource.load()) {
+            int probedPages = documentParser.probeDocument(document, lines::add);
+            String taxYear = documentParser.parseTaxYear(lines);
+            TransactionParser transactionParser = transactionParsers.getTransactionParser(taxYear);
+            TransactionParser lineParser = new TransactionParser() {
+
+                @Override
+                public String[] getHeader() {
+                    return transactionParser.getHeader();
+                }
+
+                @Override
+                public List<Transaction> parse1099BTransactions(List<String> lines) {
+                    return transactionParser.parse1099BTransactions(lines);
+                }
+
+                @Override
+                public boolean mayContainTransactions(String pageText) {
+                    return transactionParser.mayContainTransactions(pageText);
+                }
+            };
+
+            documentParser.parseDocument(document, documentSource, probedPages, lineParser, lines::add,
+                    chunk -> { throw new AssertionError("Unexpected chunk"); });
+        } finally {
+            documentParser.shutdown();
+        }
+
+        return lines;
+    }
+
+    /**
+     * Converts the document, with the lines of the page ranges matched on the extraction threads and the state of
+     * the transaction parser carried from one page range to the next.
+     */
+    private List<Transaction> convert(DocumentParser documentParser, DocumentSource documentSource) throws IOException {
+
+        DocumentConverter documentConverter = new DocumentConverter(documentParser, transactionParsers,
+                memoryAdmissionControl, conversionMetrics);
+
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            documentConverter.convert(documentSource, new TransactionHandler() {
+
+                @Override
+                public void start(String taxYear, TransactionParser transactionParser) {
+                }
+
+                @Override
+                public void transaction(Transaction transaction) {
+                    transactions.add(transaction);
+                }
+            });
+        } finally {
+            documentParser.shutdown();
+        }
+
+        return transactions;
+    }
+}
@@ -0,0 +1,102 @@
+package com.prosper1099;
+
+import com.prosper1099.corpus.SyntheticDocumentFolder;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Summarizes synthetic documents through the {@link ConverterController} and compares the totals, per reporting
+ * category and per term, with the sums of the golden CSV written by the generator in cents.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TransactionSummaryTests {
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private ConverterController converterController;
+
+    @Test
+    public void testLayout2017To2023() throws Exception {
+        assertMatchesGoldenCsv(2019, new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 300));
+    }
+
+    @Test
+    public void testLayout2024Plus() throws Exception {
+        assertMatchesGoldenCsv(2024, new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 300).notesPerPage(40));
+    }
+
+    private void assertMatchesGoldenCsv(int taxYear, SyntheticDocumentGenerator generator) throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf", generator);
+        TransactionSummary summary = converterController.summarizePdf(document.upload());
+
+        ExpectedTotals total = new ExpectedTotals();
+        Map<ReportingCategory, ExpectedTotals> reportingCategories = new EnumMap<>(ReportingCategory.class);
+        ExpectedTotals[] terms = {new ExpectedTotals(), new ExpectedTotals()};
+
+        for (CSVRecord record : document.readExpectedRecords()) {
+            ReportingCategory reportingCategory = ReportingCategory.of(record.get("Reporting Category"));
+            total.add(record);
+            reportingCategories.computeIfAbsent(reportingCategory, category -> new ExpectedTotals()).add(record);
+            terms[reportingCategory.getTerm().ordinal()].add(record);
+        }
+
+        assertEquals(String.valueOf(taxYear), summary.getTaxYear());
+        total.assertMatches(summary.getTotal());
+
+        // The generator reports short-term notes in box B and long-term notes in box E
+        assertEquals(2, reportingCategories.size());
+        assertEquals(reportingCategories.keySet(), summary.getReportingCategories().keySet());
+        for (Map.Entry<ReportingCategory, ExpectedTotals> category : reportingCategories.entrySet()) {
+            category.getValue().assertMatches(summary.getReportingCategories().get(category.getKey()));
+        }
+
+        for (ReportingCategory.Term term : ReportingCategory.Term.values()) {
+            ExpectedTotals expected = terms[term.ordinal()];
+            if (expected.transactions > 0) {
+                expected.assertMatches(summary.getTerms().get(term));
+            }
+        }
+    }
+
+    private static class ExpectedTotals {
+
+        private int transactions;
+        private long salesProceeds;
+        private long costBasis;
+
+
+        void add(CSVRecord record) {
+            transactions++;
+            salesProceeds += cents(new BigDecimal(record.get("Sales Proceeds")));
+            costBasis += cents(new BigDecimal(record.get("Cost Basis")));
+        }
+
+        void assertMatches(TransactionSummary.Totals totals) {
+            assertEquals(transactions, totals.getTransactions());
+            assertEquals(salesProceeds, cents(totals.getSalesProceeds()));
+            assertEquals(costBasis, cents(totals.getCostBasis()));
+            assertEquals(salesProceeds - costBasis, cents(totals.getGainOrLoss()));
+        }
+
+        private static long cents(BigDecimal amount) {
+            return amount.movePointRight(2).longValueExact();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.prosper1099.corpus;
+
+import com.prosper1099.ConverterController;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Runs synthetic documents through the {@link ConverterController} and compares the CSV with the golden CSV written
+ * by the generator. The number of notes is set with the system property prosper1099.corpus.notes, which the
+ * scaleTest task raises to hundreds of thousands.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CorpusRegressionTests {
+
+    private static final int NOTES = Integer.getInteger("prosper1099.corpus.notes", 500);
+
+    @Rule
+    public SyntheticDocumentFolder documents = new SyntheticDocumentFolder();
+
+    @Autowired
+    private ConverterController converterController;
+
+    @Test
+    public void testLayout2017To2023() throws Exception {
+        assertMatchesGoldenCsv(new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, NOTES).boilerplatePages(3));
+    }
+
+    @Test
+    public void testLayout2024Plus() throws Exception {
+        assertMatchesGoldenCsv(new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, NOTES).notesPerPage(40).boilerplatePages(3));
+    }
+
+    /**
+     * Amounts of $1,000 and more are printed with thousands separators, which the CSV leaves out.
+     */
+    @Test
+    public void testThousandsSeparators() throws Exception {
+        assertMatchesGoldenCsv(new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 100).amountFactor(1000));
+        assertMatchesGoldenCsv(new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 100).amountFactor(1000));
+    }
+
+    @Test
+    public void testCheckBoxes() throws Exception {
+        assertMatchesGoldenCsv(new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 100).checkBoxes("H", "L"));
+        assertMatchesGoldenCsv(new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 100).checkBoxes("G", "J"));
+    }
+
+    /**
+     * Form 8949 only has the check boxes A to L, so other letters fail the conversion instead of being written.
+     */
+    @Test
+    public void testUnknownCheckBox() throws Exception {
+        assertUnsupportedCheckBox(new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 100).checkBoxes("B", "M"));
+        assertUnsupportedCheckBox(new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 100).checkBoxes("A", "M"));
+    }
+
+    private void assertUnsupportedCheckBox(SyntheticDocumentGenerator generator) throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf", generator);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> converterController
+                .convertPdfToCsv(document.upload()).getBody().writeTo(OutputStream.nullOutputStream()));
+
+        assertEquals("Unsupported Form 8949 check box 'M'", e.getMessage());
+    }
+
+    private void assertMatchesGoldenCsv(SyntheticDocumentGenerator generator) throws Exception {
+
+        SyntheticDocumentFolder.Document document = documents.write("document.pdf", generator);
+        Path actualCsv = documents.getRoot().toPath().resolve("actual.csv");
+
+        try (OutputStream out = Files.newOutputStream(actualCsv)) {
+            converterController.convertPdfToCsv(document.upload()).getBody().writeTo(out);
+        }
+
+        assertSameLines(document.expectedCsv(), actualCsv);
+    }
+
+    private static void assertSameLines(Path expected, Path actual) throws IOException {
+
+        try (BufferedReader expectedReader = Files.newBufferedReader(expected, StandardCharsets.UTF_8);
+             BufferedReader actualReader = Files.newBufferedReader(actual, StandardCharsets.UTF_8)) {
+
+            int lineNumber = 1;
+            String expectedLine;
+            while ((expectedLine = expectedReader.readLine()) != null) {
+                assertEquals("Line " + lineNumber, expectedLine, actualReader.readLine());
+                lineNumber++;
+            }
+
+            assertNull("Line " + lineNumber, actualReader.readLine());
+        }
+    }
+}
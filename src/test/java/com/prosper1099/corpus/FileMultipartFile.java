@@ -0,0 +1,64 @@
+package com.prosper1099.corpus;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A {@link MultipartFile} backed by a file on disk, so large generated documents don't have to be loaded into
+ * memory the way {@link org.springframework.mock.web.MockMultipartFile} does.
+ */
+public class FileMultipartFile implements MultipartFile {
+
+    private final Path file;
+
+
+    public FileMultipartFile(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return file.getFileName().toString();
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/pdf";
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return file.toFile().length();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(file);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(file, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
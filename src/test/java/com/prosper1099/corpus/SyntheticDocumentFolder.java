@@ -0,0 +1,69 @@
+package com.prosper1099.corpus;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A temporary folder that synthetic documents are written to along with their golden CSVs, so tests can upload them
+ * and compare the results with the golden CSVs.
+ */
+public class SyntheticDocumentFolder extends TemporaryFolder {
+
+    /**
+     * Writes the PDF to the file name, which may be in a subdirectory, and its golden CSV to the expected directory.
+     */
+    public Document write(String fileName, SyntheticDocumentGenerator generator) throws IOException {
+
+        Path pdf = createDirectories(getRoot().toPath().resolve(fileName));
+        Path expectedCsv = createDirectories(getRoot().toPath().resolve("expected").resolve(fileName + ".csv"));
+        generator.write(pdf, expectedCsv);
+
+        return new Document(pdf, expectedCsv);
+    }
+
+    /**
+     * Writes a file that isn't a synthetic document, such as a broken PDF or a ZIP archive.
+     */
+    public Path write(String fileName, byte[] content) throws IOException {
+        return Files.write(createDirectories(getRoot().toPath().resolve(fileName)), content);
+    }
+
+    private static Path createDirectories(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return file;
+    }
+
+
+    /**
+     * A synthetic document written to the folder.
+     */
+    public record Document(Path pdf, Path expectedCsv) {
+
+        public MultipartFile upload() {
+            return new FileMultipartFile(pdf);
+        }
+
+        public byte[] readPdf() throws IOException {
+            return Files.readAllBytes(pdf);
+        }
+
+        public String readExpectedCsv() throws IOException {
+            return Files.readString(expectedCsv);
+        }
+
+        public List<CSVRecord> readExpectedRecords() throws IOException {
+            try (Reader reader = Files.newBufferedReader(expectedCsv, StandardCharsets.UTF_8)) {
+                return CSVFormat.Builder.create().setHeader().build().parse(reader).getRecords();
+            }
+        }
+    }
+}
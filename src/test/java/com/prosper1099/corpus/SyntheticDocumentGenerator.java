@@ -0,0 +1,408 @@
+package com.prosper1099.corpus;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Generates synthetic Prosper 1099 PDFs in the 2017-2023 and 2024+ layouts together with the CSV the converter is
+ * expected to produce for them. Pages are generated and written one at a time, so documents with hundreds of
+ * thousands of notes can be generated without holding them in memory.
+ */
+public final class SyntheticDocumentGenerator {
+
+    public enum Layout {
+        FORM_2017_TO_2023,
+        FORM_2024_PLUS
+    }
+
+    private static final String[] HEADER = {"Date Sold", "Date Acquired", "Sales Proceeds", "Description", "Cost Basis", "Reporting Category"};
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final float FONT_SIZE = 7;
+    private static final float LEADING = 10;
+
+    private final Layout layout;
+    private final int taxYear;
+    private final int notes;
+    private int notesPerPage = 12;
+    private int boilerplatePages = 0;
+    private long seed = 1;
+    private boolean embeddedFont;
+    private boolean notesSpanPages;
+    private int amountFactor = 1;
+    private String shortTermCheckBox;
+    private String longTermCheckBox;
+
+
+    public SyntheticDocumentGenerator(Layout layout, int taxYear, int notes) {
+        this.layout = layout;
+        this.taxYear = taxYear;
+        this.notes = notes;
+        this.shortTermCheckBox = layout == Layout.FORM_2017_TO_2023 ? "B" : "A";
+        this.longTermCheckBox = layout == Layout.FORM_2017_TO_2023 ? "E" : "D";
+    }
+
+    /**
+     * Number of notes on each 1099-B detail page, which determines the page count.
+     */
+    public SyntheticDocumentGenerator notesPerPage(int notesPerPage) {
+        this.notesPerPage = notesPerPage;
+        return this;
+    }
+
+    /**
+     * Number of pages without 1099-B detail, such as 1099-INT/OID and instruction pages. Half of them come before
+     * the 1099-B detail and half after.
+     */
+    public SyntheticDocumentGenerator boilerplatePages(int boilerplatePages) {
+        this.boilerplatePages = boilerplatePages;
+        return this;
+    }
+
+    /**
+     * Embeds a TrueType font, as real statements do, instead of using the standard Helvetica font.
+     */
+    public SyntheticDocumentGenerator embeddedFont(boolean embeddedFont) {
+        this.embeddedFont = embeddedFont;
+        return this;
+    }
+
+    /**
+     * Breaks the 1099-B detail pages after a fixed number of lines, so notes and sections continue on the next page
+     * and parsers have to carry their state from one page to the next. Each page holds one line more than
+     * notesPerPage notes, so the page breaks move through the lines of a note.
+     */
+    public SyntheticDocumentGenerator notesSpanPages(boolean notesSpanPages) {
+        this.notesSpanPages = notesSpanPages;
+        return this;
+    }
+
+    /**
+     * Multiplies the amounts of the notes, which are below $25 by default, so that amounts of $1,000 and more are
+     * printed with thousands separators.
+     */
+    public SyntheticDocumentGenerator amountFactor(int amountFactor) {
+        this.amountFactor = amountFactor;
+        return this;
+    }
+
+    /**
+     * The Form 8949 check boxes of short-term and long-term notes, B and E for the 2017-2023 layout and A and D for
+     * the 2024+ layout by default.
+     */
+    public SyntheticDocumentGenerator checkBoxes(String shortTermCheckBox, String longTermCheckBox) {
+        this.shortTermCheckBox = shortTermCheckBox;
+        this.longTermCheckBox = longTermCheckBox;
+        return this;
+    }
+
+    public SyntheticDocumentGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getPageCount() {
+        return 1 + boilerplatePages + getDetailPageCount();
+    }
+
+    private int getDetailPageCount() {
+
+        if (!notesSpanPages) {
+            return (notes + notesPerPage - 1) / notesPerPage;
+        }
+
+        int linesPerPage = getLinesPerPage();
+        return (getDetailLineCount() + linesPerPage - 1) / linesPerPage;
+    }
+
+    private int getLinesPerPage() {
+        return notesPerPage * (layout == Layout.FORM_2017_TO_2023 ? 4 : 1) + 1;
+    }
+
+    /**
+     * Number of note and section header lines when notes span pages, which don't repeat the section header.
+     */
+    private int getDetailLineCount() {
+
+        if (layout == Layout.FORM_2017_TO_2023) {
+            return notes * 4;
+        }
+
+        int sections = notes == 0 ? 0 : notes / 3 == 0 ? 1 : 2;
+        return notes + sections * 2;
+    }
+
+    /**
+     * The text lines of the document in page order, as the converter is expected to extract them.
+     */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        generate(lines::addAll, transaction -> { });
+        return lines;
+    }
+
+    public byte[] toPdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            generate(document);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Writes the PDF and the expected CSV.
+     */
+    public void write(Path pdf, Path expectedCsv) throws IOException {
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+             Writer writer = Files.newBufferedWriter(expectedCsv, StandardCharsets.UTF_8)) {
+
+            CSVPrinter printer = new CSVPrinter(writer, CSVFormat.Builder.create().setHeader(HEADER).build());
+            PDFont font = loadFont(document);
+            generate(page -> addPage(document, font, page), transaction -> {
+                try {
+                    printer.printRecord((Object[]) transaction);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            printer.flush();
+
+            document.save(pdf.toFile());
+        }
+    }
+
+    private void generate(PDDocument document) throws IOException {
+        PDFont font = loadFont(document);
+        generate(page -> addPage(document, font, page), transaction -> { });
+    }
+
+    private PDFont loadFont(PDDocument document) throws IOException {
+
+        if (!embeddedFont) {
+            return PDType1Font.HELVETICA;
+        }
+
+        try (InputStream in = PDFont.class.getResourceAsStream("/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf")) {
+            return PDTrueTypeFont.load(document, in, WinAnsiEncoding.INSTANCE);
+        }
+    }
+
+    private void generate(Consumer<List<String>> pageConsumer, Consumer<String[]> transactionConsumer) {
+
+        Random random = new Random(seed);
+        int detailPages = getDetailPageCount();
+        int boilerplatePagesBefore = (boilerplatePages + 1) / 2;
+
+        pageConsumer.accept(summaryPage());
+
+        for (int i = 0; i < boilerplatePagesBefore; i++) {
+            pageConsumer.accept(interestPage(random));
+        }
+
+        List<String> detailLines = new ArrayList<>();
+        int note = 0;
+        for (int detailPage = 1; detailPage <= detailPages; detailPage++) {
+
+            List<String> lines = new ArrayList<>();
+            lines.add("PROSPER FUNDING LLC");
+            lines.add("Form 1099-B Proceeds From Broker and Barter Exchange Transactions " + taxYear);
+            if (layout == Layout.FORM_2017_TO_2023) {
+                lines.add("1c Date sold or disposed 1b Date acquired 1d Proceeds 1a Description of property");
+            }
+
+            if (notesSpanPages) {
+                // Generate notes until the page is full and keep the rest of the last note for the next page.
+                while (detailLines.size() < getLinesPerPage() && note < notes) {
+                    addNote(detailLines, random, note++, transactionConsumer);
+                }
+                List<String> pageLines = detailLines.subList(0, Math.min(getLinesPerPage(), detailLines.size()));
+                lines.addAll(pageLines);
+                pageLines.clear();
+            } else {
+                int lastNote = Math.min(note + notesPerPage, notes);
+                for (; note < lastNote; note++) {
+                    addNote(lines, random, note, transactionConsumer);
+                }
+            }
+
+            lines.add("Page " + detailPage + " of " + detailPages);
+            pageConsumer.accept(lines);
+        }
+
+        for (int i = boilerplatePagesBefore; i < boilerplatePages; i++) {
+            pageConsumer.accept(instructionsPage());
+        }
+    }
+
+    private List<String> summaryPage() {
+
+        List<String> lines = new ArrayList<>();
+        lines.add("PROSPER FUNDING LLC");
+        lines.add("221 Main Street, Suite 300");
+        lines.add("San Francisco, CA 94105");
+        if (layout == Layout.FORM_2017_TO_2023) {
+            lines.add("Tax Year " + taxYear + " Combined Form");
+            lines.add("Summary of Form 1099-OID and Form 1099-B");
+        } else {
+            lines.add(String.valueOf(taxYear));
+            lines.add("Form 1099-B Proceeds From Broker and Barter Exchange Transactions");
+            lines.add("Copy B For Recipient OMB No. 1545-0715");
+        }
+        lines.add("This is important tax information and is being furnished to the IRS.");
+
+        return lines;
+    }
+
+    private List<String> interestPage(Random random) {
+
+        List<String> lines = new ArrayList<>();
+        lines.add("PROSPER FUNDING LLC");
+        lines.add("Form 1099-OID Original Issue Discount " + taxYear);
+        for (int i = 0; i < 30; i++) {
+            lines.add(String.format("Loan %d-%d Box 1. Original issue discount for %d %s", 100000 + random.nextInt(900000), i, taxYear, dollars(random.nextInt(500))));
+        }
+
+        return lines;
+    }
+
+    private List<String> instructionsPage() {
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Instructions for Recipient");
+        for (int i = 0; i < 20; i++) {
+            lines.add("Box 1a. Shows a brief description of the item or service for which amounts are being reported.");
+            lines.add("Box 1e. Shows the cost or other basis of securities sold. If the securities were acquired through");
+            lines.add("the exercise of a noncompensatory option granted or acquired on or after January 1, 2014, the basis");
+        }
+
+        return lines;
+    }
+
+    private void addNote(List<String> lines, Random random, int note, Consumer<String[]> transactionConsumer) {
+        if (layout == Layout.FORM_2017_TO_2023) {
+            addNote2017To2023(lines, random, note, transactionConsumer);
+        } else {
+            addNote2024Plus(lines, random, note, transactionConsumer);
+        }
+    }
+
+    private void addNote2017To2023(List<String> lines, Random random, int note, Consumer<String[]> transactionConsumer) {
+
+        LocalDate dateSold = LocalDate.of(taxYear, 1, 1).plusDays(random.nextInt(365));
+        LocalDate dateAcquired = dateSold.minusDays(30 + random.nextInt(1500));
+        int proceeds = random.nextInt(2500) * amountFactor;
+        int costBasis = (random.nextInt(8) == 0 ? -random.nextInt(500) : random.nextInt(2500)) * amountFactor;
+        String noteId = (100000 + random.nextInt(900000)) + "-" + note % 100;
+        String reportingCategory = dateAcquired.isBefore(dateSold.minusYears(1)) ? longTermCheckBox : shortTermCheckBox;
+
+        lines.add(dateSold.format(DATE_FORMAT) + ' ' + dateAcquired.format(DATE_FORMAT) + ' ' + dollars(proceeds) + ' ' + noteId + " NOTE");
+        lines.add("Box 1f. $0.00 Box 1g. $0.00 Box 4. $0.00");
+        lines.add("Cost or other basis Box 1e. " + dollars(costBasis));
+        lines.add("Applicable check box on Form 8949 " + reportingCategory);
+
+        transactionConsumer.accept(new String[] {dateSold.format(DATE_FORMAT), dateAcquired.format(DATE_FORMAT), amount(proceeds),
+                "Prosper Note " + noteId + " NOTE", amount(costBasis), reportingCategory});
+    }
+
+    private void addNote2024Plus(List<String> lines, Random random, int note, Consumer<String[]> transactionConsumer) {
+
+        // Short-term notes come first, then long-term notes, each under their own section header.
+        boolean shortTerm = note < notes / 3;
+        if (note == 0 || note == notes / 3 || !notesSpanPages && note % notesPerPage == 0) {
+            lines.add(shortTerm
+                    ? "Covered Short-Term Gains or Losses on Net Proceeds Report on Form 8949, Part I with Box " + shortTermCheckBox + " checked"
+                    : "Covered Long-Term Gains or Losses on Net Proceeds Report on Form 8949, Part II with Box " + longTermCheckBox + " checked");
+            lines.add("1a- Description of property 1b- Date acquired 1c- Date sold 1d- Proceeds 1e- Cost basis 1f- Accrued market discount");
+        }
+
+        LocalDate dateSold = LocalDate.of(taxYear, 1, 1).plusDays(random.nextInt(365));
+        LocalDate dateAcquired = shortTerm ? dateSold.minusDays(1 + random.nextInt(360)) : dateSold.minusDays(370 + random.nextInt(1500));
+        int proceeds = random.nextInt(2500) * amountFactor;
+        int costBasis = random.nextInt(2500) * amountFactor;
+        String noteId = (1000000 + random.nextInt(9000000)) + "-" + note % 10;
+
+        lines.add(noteId + " NOTE " + dateAcquired.format(DATE_FORMAT) + ' ' + dateSold.format(DATE_FORMAT) + ' ' + dollars(proceeds) + ' '
+                + dollars(costBasis) + " $0.00 $0.00 " + dollars(proceeds - costBasis));
+
+        transactionConsumer.accept(new String[] {dateSold.format(DATE_FORMAT), dateAcquired.format(DATE_FORMAT), amount(proceeds),
+                "Prosper Note " + noteId + " NOTE", amount(costBasis), shortTerm ? shortTermCheckBox : longTermCheckBox});
+    }
+
+    private static String dollars(int cents) {
+        String value = String.format(Locale.US, "$%,d.%02d", Math.abs(cents) / 100, Math.abs(cents) % 100);
+        return cents < 0 ? '(' + value + ')' : value;
+    }
+
+    private static String amount(int cents) {
+        return String.format("%s%d.%02d", cents < 0 ? "-" : "", Math.abs(cents) / 100, Math.abs(cents) % 100);
+    }
+
+    private static void addPage(PDDocument document, PDFont font, List<String> lines) {
+
+        // Pages with many notes are made taller rather than squeezing the lines together.
+        float height = Math.max(PDRectangle.LETTER.getHeight(), 72 + lines.size() * LEADING);
+
+        PDPage page = new PDPage(new PDRectangle(PDRectangle.LETTER.getWidth(), height));
+        document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.setFont(font, FONT_SIZE);
+            for (int i = 0; i < lines.size(); i++) {
+                contentStream.beginText();
+                contentStream.newLineAtOffset(36, height - 36 - i * LEADING);
+                contentStream.showText(lines.get(i));
+                contentStream.endText();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a PDF and its expected CSV to the output directory.
+     * Usage: SyntheticDocumentGenerator &lt;2017To2023|2024Plus&gt; &lt;notes&gt; &lt;notesPerPage&gt; &lt;outputDirectory&gt;
+     */
+    public static void main(String[] args) throws IOException {
+
+        Layout layout = "2017To2023".equals(args[0]) ? Layout.FORM_2017_TO_2023 : Layout.FORM_2024_PLUS;
+        int notes = Integer.parseInt(args[1]);
+        int notesPerPage = Integer.parseInt(args[2]);
+        Path outputDirectory = Paths.get(args[3]);
+
+        Files.createDirectories(outputDirectory);
+
+        String name = "prosper-1099-" + args[0] + '-' + notes;
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator(layout, layout == Layout.FORM_2017_TO_2023 ? 2019 : 2024, notes)
+                .notesPerPage(notesPerPage)
+                .boilerplatePages(4);
+        generator.write(outputDirectory.resolve(name + ".pdf"), outputDirectory.resolve(name + ".csv"));
+
+        System.out.println("Wrote " + generator.getPageCount() + " pages to " + outputDirectory.resolve(name + ".pdf"));
+    }
+}
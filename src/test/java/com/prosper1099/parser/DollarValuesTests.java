@@ -0,0 +1,46 @@
+package com.prosper1099.parser;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+
+public class DollarValuesTests {
+
+    @Test
+    public void testParseCents() {
+        assertEquals(1234, DollarValues.parseCents("$12.34"));
+        assertEquals(-1234, DollarValues.parseCents("($12.34)"));
+        assertEquals(0, DollarValues.parseCents("$0.00"));
+        assertEquals(25, DollarValues.parseCents("$.25"));
+        assertEquals(1250, DollarValues.parseCents("$12.5"));
+        assertEquals(1200, DollarValues.parseCents("$12"));
+        assertEquals(123456789, DollarValues.parseCents("$1,234,567.89"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseCentsWithoutDollarSign() {
+        DollarValues.parseCents("12.34");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseCentsWithThreeDecimals() {
+        DollarValues.parseCents("$12.345");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseCentsWithoutDigits() {
+        DollarValues.parseCents("$.");
+    }
+
+    @Test
+    public void testParseEpochDay() {
+        assertEquals(LocalDate.of(2024, 1, 31).toEpochDay(), Dates.parseEpochDay("01/31/2024"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseInvalidDate() {
+        Dates.parseEpochDay("02/30/2024");
+    }
+}
@@ -0,0 +1,68 @@
+package com.prosper1099.parser;
+
+import com.prosper1099.StreamingTransactionParser;
+import com.prosper1099.StreamingTransactionParser.LineParser;
+import com.prosper1099.Transaction;
+import com.prosper1099.TransactionParsers;
+import com.prosper1099.corpus.SyntheticDocumentGenerator;
+import com.prosper1099.corpus.SyntheticDocumentGenerator.Layout;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parses the lines of synthetic documents in chunks of various sizes, so that transactions and sections span chunk
+ * boundaries, and compares the transactions with those parsed one line at a time.
+ */
+public class LineChunkTests {
+
+    private static final int[] CHUNK_SIZES = {1, 2, 3, 5, 7, 64, 100000};
+
+    @Test
+    public void testLayout2017To2023() {
+        assertSameTransactions(new TransactionParser2017To2023(new TransactionParsers()),
+                new SyntheticDocumentGenerator(Layout.FORM_2017_TO_2023, 2019, 300).boilerplatePages(2).lines());
+    }
+
+    @Test
+    public void testLayout2024Plus() {
+        assertSameTransactions(new TransactionParser2024Plus(new TransactionParsers()),
+                new SyntheticDocumentGenerator(Layout.FORM_2024_PLUS, 2024, 300).notesPerPage(40).boilerplatePages(2).lines());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnexpectedLineInLaterChunk() {
+
+        TransactionParser2017To2023 transactionParser = new TransactionParser2017To2023(new TransactionParsers());
+        LineParser lineParser = transactionParser.newLineParser(transaction -> { });
+
+        lineParser.parseChunk(transactionParser.matchLines(List.of("01/02/2019 03/04/2018 $12.34 123456-1 NOTE")));
+        lineParser.parseChunk(transactionParser.matchLines(List.of("Applicable check box on Form 8949 B")));
+    }
+
+    private static void assertSameTransactions(StreamingTransactionParser transactionParser, List<String> lines) {
+
+        List<Transaction> expected = new ArrayList<>();
+        LineParser lineParser = transactionParser.newLineParser(expected::add);
+        lines.forEach(lineParser::parseLine);
+        lineParser.finish();
+
+        assertEquals(300, expected.size());
+
+        for (int chunkSize : CHUNK_SIZES) {
+            List<Transaction> actual = new ArrayList<>();
+            lineParser = transactionParser.newLineParser(actual::add);
+            for (int start = 0; start < lines.size(); start += chunkSize) {
+                lineParser.parseChunk(transactionParser.matchLines(lines.subList(start, Math.min(start + chunkSize, lines.size()))));
+            }
+            lineParser.finish();
+
+            assertEquals("Chunk size " + chunkSize, expected, actual);
+        }
+
+        assertEquals(expected, transactionParser.parse1099BTransactions(lines));
+    }
+}